@@ -20,12 +20,25 @@ public final class ASCII extends AbstractSourceWrapper {
     final char highChar = extended ? '\u00FF' : '\u007F';
     final int length = source.length();
     final byte[] result = new byte[length];
-    for (int i = 0; i < length; i++) {
-      final char c = source.charAt(i);
-      if (c > highChar)
-        result[i] = substitute;
+    if (source instanceof CharArrayWrapper) {
+      final CharArrayWrapper w = (CharArrayWrapper) source;
+      ArrayKernels.narrow(w.chars, w.offset(), result, 0, length, highChar, substitute);
+      return result;
+    }
+    if (extended && source instanceof ByteArrayWrapper) {
+      final ByteArrayWrapper w = (ByteArrayWrapper) source;
+      System.arraycopy(w.bytes, w.offset(), result, 0, length);
+      return result;
+    }
+    // Narrow chunks, so that the sequence is copied in bulk:
+    final char[] buf = new char[Math.min(length, 8192)];
+    for (int i = 0; i < length; i += buf.length) {
+      final int n = Math.min(buf.length, length - i);
+      StringUtils.getChars(source, i, i + n, buf, 0);
+      if (extended && ArrayKernels.indexOfNonLatin1(buf, 0, n) < 0)
+        ArrayKernels.narrow(buf, 0, result, i, n);
       else
-        result[i] = (byte) c;
+        ArrayKernels.narrow(buf, 0, result, i, n, highChar, substitute);
     }
     return result;
   }
@@ -49,24 +62,50 @@ public final class ASCII extends AbstractSourceWrapper {
    */
   public static final char SYMBOL_FOR_SUBSTITUTE = '\u241A';
 
+  /** Mapping of {@link #of(CharSequence)}. */
+  private static final CharMapper TO_ASCII              = table('\u007F', QUESTION_MARK);
+  /** Mapping of {@link #ofLatin1(CharSequence)}. */
+  private static final CharMapper TO_LATIN1             = table('\u00FF', QUESTION_MARK);
+
   /** The last character not to be substituted. */
-  private final char       highChar;
+  private final char              highChar;
   /** The substitute character. */
-  private final char       substitute;
+  private final char              substitute;
+  /** The mapping as a lookup table. */
+  private final CharMapper        mapper;
 
-  private ASCII(final CharSequence source, final char substitute, final char highChar) {
+  private ASCII(final CharSequence source, final char substitute, final char highChar, final CharMapper mapper) {
     super(source);
     this.highChar = highChar;
     this.substitute = substitute;
+    this.mapper = mapper;
+  }
+
+  private static CharMapper table(final char highChar, final char substitute) {
+    return CharMapper.lookupTable(c -> c > highChar ? substitute : c);
+  }
+
+  /** The lookup table of the mapping. The common ones are shared. */
+  private static CharMapper mapper(final char highChar, final char substitute) {
+    if (substitute == QUESTION_MARK && highChar == '\u007F')
+      return TO_ASCII;
+    if (substitute == QUESTION_MARK && highChar == '\u00FF')
+      return TO_LATIN1;
+    return table(highChar, substitute);
   }
 
   /**
    * Characters that are above a given <i>highest character</i> (starting with
    * highChar+1) are replaced by given substitute. Note that the
    * <i>substitute</i> can be greater than <i>highChar</i>.
+   *
+   * <p>
+   * If the source is a {@link CharWrapper}, {@link Rot13} or {@link ASCII} then
+   * the mappings are fused into one {@link CharWrapper}.
    */
-  public static StringWrapper of(final CharSequence source, final char substitute, final char highChar) {
+  public static StringWrapper of(CharSequence source, final char highChar, final char substitute) {
     requireNonNull(source, "source");
+    source = NullWrapper.unwrap(source);
     if (source instanceof ASCII) {
       final ASCII ascii = (ASCII) source;
       if (ascii.highChar == highChar && ascii.substitute == substitute)
@@ -74,7 +113,10 @@ public final class ASCII extends AbstractSourceWrapper {
     }
     if (0 == source.length())
       return EmptyWrapper.INSTANCE;
-    return new ASCII(source, highChar, substitute);
+    final CharMapper mapper = mapper(highChar, substitute);
+    if (CharWrapper.mapperOf(source) != null)
+      return CharWrapper.of(source, mapper);
+    return new ASCII(source, substitute, highChar, mapper);
   }
 
   /**
@@ -104,6 +146,14 @@ public final class ASCII extends AbstractSourceWrapper {
     return ofLatin1(source, QUESTION_MARK);
   }
 
+  /**
+   * The mapping of this wrapper, as a {@link CharMapper}. It is a lookup table,
+   * so it can be compiled together with other tables when it is fused.
+   */
+  CharMapper mapper() {
+    return this.mapper;
+  }
+
   @Override
   public char charAt(final int index) {
     final char c = this.getSource().charAt(index);
@@ -113,8 +163,26 @@ public final class ASCII extends AbstractSourceWrapper {
     return c;
   }
 
+  @Override
+  public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    StringUtils.getChars(this.getSource(), srcBegin, srcEnd, dst, dstBegin);
+    final int dstEnd = dstBegin + srcEnd - srcBegin;
+    for (int i = dstBegin; i < dstEnd; i++) {
+      if (dst[i] > this.highChar)
+        dst[i] = this.substitute;
+    }
+  }
+
   @Override
   protected boolean canContain(final char chr) {
-    return chr <= this.highChar;
+    if (chr > this.highChar && chr != this.substitute)
+      return false;
+    return super.canContain(chr);
+  }
+
+  @Override
+  CharPresence computePresence() {
+    final CharPresence p = CharPresence.of(this.getSource()).map(this.mapper());
+    return p != null ? p : super.computePresence();
   }
 }
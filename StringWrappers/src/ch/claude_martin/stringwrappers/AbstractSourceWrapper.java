@@ -13,6 +13,16 @@ abstract class AbstractSourceWrapper extends AbstractStringWrapper {
     return this.source;
   }
 
+  @Override
+  boolean isImmutable() {
+    return StringUtils.isImmutable(this.source);
+  }
+
+  @Override
+  long retained(final boolean bytes) {
+    return StringUtils.retained(this.source, bytes);
+  }
+
   @Override
   public int length() {
     // This is correct for all but Concat and Substring:
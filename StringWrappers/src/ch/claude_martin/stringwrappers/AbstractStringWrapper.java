@@ -26,13 +26,62 @@ abstract class AbstractStringWrapper implements StringWrapper {
    * Checks if this string can contain the given character. Returns false if it
    * is impossible that this string would contain the given character.
    *
+   * <p>
+   * By default this uses the {@link #presence() summary} of the characters, but
+   * only if it was already calculated. The first search is never delayed by a
+   * scan of the whole content.
+   *
    * @param chr
    *          The caracter
    * @return true, if this can contain chr.
    */
-  @SuppressWarnings("static-method")
   protected boolean canContain(final char chr) {
-    return true;
+    final CharPresence p = this.presence;
+    return p == null || p.mayContain(chr);
+  }
+
+  /** Cached summary of the characters. Null if it was not calculated yet. */
+  private CharPresence presence;
+
+  /**
+   * Summary of the characters of this string. It is calculated when it is used
+   * for the first time and only cached if this is
+   * {@link #isImmutable() immutable}. Otherwise this returns
+   * {@link CharPresence#ALL}, so that nothing is scanned.
+   *
+   * <p>
+   * Searches do not call this. They calculate the summary after they read the
+   * whole content without a match, see {@link #searchedAll()}.
+   */
+  final CharPresence presence() {
+    CharPresence p = this.presence;
+    if (p == null) {
+      if (!this.isImmutable())
+        return CharPresence.ALL;
+      p = this.length() == 0 ? CharPresence.EMPTY : this.computePresence();
+      this.presence = p;
+    }
+    return p;
+  }
+
+  /** The summary, if it was already calculated. Otherwise null. */
+  final CharPresence cachedPresence() {
+    return this.presence;
+  }
+
+  /**
+   * Called after a search read the whole content without finding anything.
+   * That search already took linear time, so the summary is calculated now, and
+   * later searches for absent characters return at once.
+   */
+  final void searchedAll() {
+    if (this.presence == null && this.isImmutable() && this.length() > 0)
+      this.presence = this.computePresence();
+  }
+
+  /** Calculates the summary of the characters. */
+  CharPresence computePresence() {
+    return CharPresence.of(this, 0, this.length());
   }
 
   @Override
@@ -49,7 +98,24 @@ abstract class AbstractStringWrapper implements StringWrapper {
   public int indexOf(final char chr, final int fromIndex) {
     if (!this.canContain(chr))
       return -1;
-    return StringWrapper.super.indexOf(chr, fromIndex);
+    final int i = StringWrapper.super.indexOf(chr, fromIndex);
+    if (i < 0 && fromIndex <= 0)
+      this.searchedAll();
+    return i;
+  }
+
+  @Override
+  public int indexOf(final CharSequence s, final int fromIndex) {
+    if (s.length() > 0 && !this.canContain(s.charAt(0)))
+      return -1;
+    return StringWrapper.super.indexOf(s, fromIndex);
+  }
+
+  @Override
+  public int lastIndexOf(final CharSequence s, final int fromIndex) {
+    if (s.length() > 0 && !this.canContain(s.charAt(0)))
+      return -1;
+    return StringWrapper.super.lastIndexOf(s, fromIndex);
   }
 
   @Override
@@ -142,7 +208,50 @@ abstract class AbstractStringWrapper implements StringWrapper {
 
   @Override
   public String toString() {
-    return new StringBuilder(this).toString();
+    final int length = this.length();
+    final char[] chars = new char[length];
+    this.getChars(0, length, chars, 0);
+    return new String(chars);
+  }
+
+  /** Cached content hash. Zero if it was not calculated yet. */
+  private int hash;
+
+  /**
+   * Checks if the content of this sequence can never change. The content hash
+   * is only cached if this returns true.
+   */
+  @SuppressWarnings("static-method")
+  boolean isImmutable() {
+    return false;
+  }
+
+  @Override
+  public int contentHash() {
+    int h = this.hash;
+    if (h == 0) {
+      h = this.computeHash();
+      if (this.isImmutable())
+        this.hash = h;
+    }
+    return h;
+  }
+
+  /**
+   * Estimated memory that is retained by this wrapper and its sources, in
+   * chars or in bytes. This only counts the content, not the objects. Content
+   * that is computed (or not on the heap) is not counted.
+   *
+   * @see StringWrapper#retainedChars()
+   */
+  @SuppressWarnings("static-method")
+  long retained(final boolean bytes) {
+    return 0L;
+  }
+
+  /** Calculates the content hash. */
+  int computeHash() {
+    return StringUtils.hash(0, this, 0, this.length());
   }
 
   @Override
@@ -0,0 +1,297 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Automaton of Aho and Corasick, that finds multiple patterns in one single
+ * pass over the text. All matches are found, including overlapping ones.
+ *
+ * <p>
+ * The automaton is immutable and can be used by multiple threads at once. The
+ * transitions are stored in arrays. Transitions from the root are stored in a
+ * table for Latin-1, all other transitions are sorted by character. When the
+ * automaton is ignoring the case, then each character is folded as in
+ * {@link StringUtils#equalsIgnoreCase(CharSequence, CharSequence)}.
+ *
+ * <p>
+ * If the same pattern is given more than once, then it is only reported with
+ * the index of its first occurrence.
+ */
+public final class AhoCorasick {
+
+  /** Receives the matches of a scan. */
+  @FunctionalInterface
+  public static interface Handler {
+    /**
+     * Called for each match. Matches are reported by their end. Matches with
+     * the same end are reported from the longest to the shortest.
+     *
+     * @param pattern
+     *          index of the pattern
+     * @param begin
+     *          index of the first character of the match.
+     * @param end
+     *          index after the last character of the match.
+     * @return false to stop the scan.
+     */
+    boolean match(int pattern, int begin, int end);
+  }
+
+  /** Folds the case of each character. */
+  private static final CharMapper FOLD  = CharMapper
+      .lookupTable(c -> Character.toLowerCase(Character.toUpperCase(c)));
+  /** Number of characters that are copied at once. */
+  private static final int        BLOCK = 1024;
+
+  private final String[]          patterns;
+  private final boolean           ignoreCase;
+  /** Transitions from the root for Latin-1. -1 if there is none. */
+  private final int[]             rootNext;
+  /** Transitions of state s are at [childStart[s], childStart[s+1]). */
+  private final int[]             childStart;
+  private final char[]            childChars;
+  private final int[]             childStates;
+  /** Failure links. */
+  private final int[]             fail;
+  /** Index of the pattern that ends in a state, or -1. */
+  private final int[]             output;
+  /** Next state on the failure chain that has an output, or -1. */
+  private final int[]             dict;
+
+  private AhoCorasick(final String[] patterns, final boolean ignoreCase) {
+    this.patterns = patterns;
+    this.ignoreCase = ignoreCase;
+
+    // Build the trie:
+    final List<Map<Character, Integer>> trie = new ArrayList<>();
+    final List<Integer> out = new ArrayList<>();
+    trie.add(new HashMap<>());
+    out.add(-1);
+    for (int p = 0; p < patterns.length; p++) {
+      int s = 0;
+      for (int i = 0; i < patterns[p].length(); i++) {
+        final char c = this.fold(patterns[p].charAt(i));
+        Integer t = trie.get(s).get(c);
+        if (t == null) {
+          t = trie.size();
+          trie.add(new HashMap<>());
+          out.add(-1);
+          trie.get(s).put(c, t);
+        }
+        s = t;
+      }
+      if (out.get(s) < 0)
+        out.set(s, p);
+    }
+
+    // Store the transitions in arrays:
+    final int states = trie.size();
+    this.childStart = new int[states + 1];
+    this.childChars = new char[states - 1];
+    this.childStates = new int[states - 1];
+    this.output = new int[states];
+    int k = 0;
+    for (int s = 0; s < states; s++) {
+      this.childStart[s] = k;
+      this.output[s] = out.get(s);
+      final Character[] keys = trie.get(s).keySet().toArray(new Character[0]);
+      Arrays.sort(keys);
+      for (final Character c : keys) {
+        this.childChars[k] = c;
+        this.childStates[k++] = trie.get(s).get(c);
+      }
+    }
+    this.childStart[states] = k;
+    this.rootNext = new int[256];
+    Arrays.fill(this.rootNext, -1);
+    for (int i = this.childStart[0]; i < this.childStart[1]; i++)
+      if (this.childChars[i] < 256)
+        this.rootNext[this.childChars[i]] = this.childStates[i];
+
+    // Failure links, in breadth-first order:
+    this.fail = new int[states];
+    this.dict = new int[states];
+    this.dict[0] = -1;
+    final ArrayDeque<Integer> queue = new ArrayDeque<>();
+    queue.add(0);
+    while (!queue.isEmpty()) {
+      final int r = queue.poll();
+      for (int i = this.childStart[r]; i < this.childStart[r + 1]; i++) {
+        final int u = this.childStates[i];
+        int f = 0;
+        if (r != 0) {
+          f = this.fail[r];
+          int g;
+          while ((g = this.transition(f, this.childChars[i])) < 0 && f != 0)
+            f = this.fail[f];
+          f = Math.max(g, 0);
+        }
+        this.fail[u] = f;
+        this.dict[u] = this.output[f] >= 0 ? f : this.dict[f];
+        queue.add(u);
+      }
+    }
+  }
+
+  /** Creates an automaton for the given patterns, which must not be empty. */
+  public static AhoCorasick of(final CharSequence... patterns) {
+    requireNonNull(patterns, "patterns");
+    return of(Arrays.asList(patterns));
+  }
+
+  /** Creates an automaton for the given patterns, which must not be empty. */
+  public static AhoCorasick of(final Collection<? extends CharSequence> patterns) {
+    return create(patterns, false);
+  }
+
+  /** Creates an automaton for the given patterns that ignores the case. */
+  public static AhoCorasick ofIgnoreCase(final CharSequence... patterns) {
+    requireNonNull(patterns, "patterns");
+    return ofIgnoreCase(Arrays.asList(patterns));
+  }
+
+  /** Creates an automaton for the given patterns that ignores the case. */
+  public static AhoCorasick ofIgnoreCase(final Collection<? extends CharSequence> patterns) {
+    return create(patterns, true);
+  }
+
+  private static AhoCorasick create(final Collection<? extends CharSequence> patterns, final boolean ignoreCase) {
+    requireNonNull(patterns, "patterns");
+    final String[] array = new String[patterns.size()];
+    int i = 0;
+    for (final CharSequence p : patterns) {
+      requireNonNull(p, "patterns[i]");
+      if (p.length() == 0)
+        throw new IllegalArgumentException("Empty pattern at index " + i);
+      array[i++] = p.toString();
+    }
+    return new AhoCorasick(array, ignoreCase);
+  }
+
+  /** The number of patterns. */
+  public int size() {
+    return this.patterns.length;
+  }
+
+  /** The pattern with the given index. */
+  public String getPattern(final int index) {
+    return this.patterns[index];
+  }
+
+  public boolean isIgnoreCase() {
+    return this.ignoreCase;
+  }
+
+  private char fold(final char c) {
+    return this.ignoreCase ? FOLD.map(c) : c;
+  }
+
+  /** The state after c, without failure links. Returns -1 if there is none. */
+  private int transition(final int s, final char c) {
+    if (s == 0 && c < 256)
+      return this.rootNext[c];
+    int lo = this.childStart[s];
+    int hi = this.childStart[s + 1] - 1;
+    while (lo <= hi) {
+      final int mid = (lo + hi) >>> 1;
+      final char m = this.childChars[mid];
+      if (m < c)
+        lo = mid + 1;
+      else if (m > c)
+        hi = mid - 1;
+      else
+        return this.childStates[mid];
+    }
+    return -1;
+  }
+
+  /** The next state after c, following failure links. */
+  private int next(int s, final char c) {
+    for (;;) {
+      final int t = this.transition(s, c);
+      if (t >= 0)
+        return t;
+      if (s == 0)
+        return 0;
+      s = this.fail[s];
+    }
+  }
+
+  /** Reports all matches in state s. Returns false if the handler stops. */
+  private boolean report(final int s, final int end, final Handler handler) {
+    for (int o = this.output[s] >= 0 ? s : this.dict[s]; o >= 0; o = this.dict[o]) {
+      final int p = this.output[o];
+      if (!handler.match(p, end - this.patterns[p].length(), end))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Scans the text and reports each match to the handler. No objects are
+   * created for the matches.
+   *
+   * @return false, if the handler stopped the scan.
+   */
+  public boolean scan(final CharSequence text, final Handler handler) {
+    requireNonNull(text, "text");
+    requireNonNull(handler, "handler");
+    final int length = text.length();
+    final char[] buf = new char[Math.min(BLOCK, length)];
+    int s = 0;
+    for (int pos = 0; pos < length; pos += buf.length) {
+      final int n = Math.min(buf.length, length - pos);
+      StringUtils.getChars(text, pos, pos + n, buf, 0);
+      for (int i = 0; i < n; i++) {
+        s = this.next(s, this.fold(buf[i]));
+        if ((this.output[s] >= 0 || this.dict[s] >= 0) && !this.report(s, pos + i + 1, handler))
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Scans the remaining characters of the iterator and reports each match to
+   * the handler. The indices are counted from the current position of the
+   * iterator.
+   *
+   * @return false, if the handler stopped the scan.
+   */
+  public boolean scan(final CharIterator iterator, final Handler handler) {
+    requireNonNull(iterator, "iterator");
+    requireNonNull(handler, "handler");
+    int s = 0;
+    for (int i = 1; iterator.hasNext(); i++) {
+      s = this.next(s, this.fold(iterator.nextChar()));
+      if ((this.output[s] >= 0 || this.dict[s] >= 0) && !this.report(s, i, handler))
+        return false;
+    }
+    return true;
+  }
+
+  /** Returns all matches as {@link Substring substrings} of the text. */
+  public List<StringWrapper> findAll(final CharSequence text) {
+    final List<StringWrapper> result = new ArrayList<>();
+    this.scan(text, (p, begin, end) -> result.add(Substring.of(text, begin, end)));
+    return result;
+  }
+
+  /** Checks if the text contains any of the patterns. */
+  public boolean containsAny(final CharSequence text) {
+    return !this.scan(text, (p, begin, end) -> false);
+  }
+
+  @Override
+  public String toString() {
+    return "AhoCorasick" + Arrays.toString(this.patterns);
+  }
+}
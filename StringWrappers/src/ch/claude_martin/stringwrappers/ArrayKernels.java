@@ -0,0 +1,156 @@
+package ch.claude_martin.stringwrappers;
+
+import java.util.Arrays;
+
+/**
+ * Loops over arrays of chars and bytes, as they are used by
+ * {@link CharArrayWrapper}, {@link ByteArrayWrapper} and {@link ASCII}. They
+ * work directly on the arrays, are unrolled and avoid branches in the inner
+ * loops where possible, so that the JIT compiler can optimize them. Whole
+ * arrays are compared by {@link Arrays#equals(char[], char[])}, which is an
+ * intrinsic of the JVM.
+ *
+ * <p>
+ * All of them are in this class, so that they can be replaced by vectorized
+ * versions when the library no longer supports Java 8.
+ */
+final class ArrayKernels {
+  private ArrayKernels() {
+    throw new RuntimeException("No instace for you!");
+  }
+
+  /** Number of elements that are checked at once by the range checks. */
+  private static final int BLOCK = 64;
+
+  /** Index of c in <code>a[from..to)</code>, or -1. */
+  static int indexOf(final char[] a, final int from, final int to, final char c) {
+    int i = from;
+    for (final int end = to - 3; i < end; i += 4) {
+      if (a[i] == c)
+        return i;
+      if (a[i + 1] == c)
+        return i + 1;
+      if (a[i + 2] == c)
+        return i + 2;
+      if (a[i + 3] == c)
+        return i + 3;
+    }
+    for (; i < to; i++)
+      if (a[i] == c)
+        return i;
+    return -1;
+  }
+
+  /** Index of b in <code>a[from..to)</code>, or -1. */
+  static int indexOf(final byte[] a, final int from, final int to, final byte b) {
+    int i = from;
+    for (final int end = to - 3; i < end; i += 4) {
+      if (a[i] == b)
+        return i;
+      if (a[i + 1] == b)
+        return i + 1;
+      if (a[i + 2] == b)
+        return i + 2;
+      if (a[i + 3] == b)
+        return i + 3;
+    }
+    for (; i < to; i++)
+      if (a[i] == b)
+        return i;
+    return -1;
+  }
+
+  /**
+   * Index of the first difference of <code>a[aFrom..aFrom+length)</code> and
+   * <code>b[bFrom..bFrom+length)</code>, relative to the start, or -1 if both
+   * are equal.
+   */
+  static int mismatch(final char[] a, final int aFrom, final char[] b, final int bFrom, final int length) {
+    if (aFrom == 0 && bFrom == 0 && a.length == length && b.length == length)
+      if (Arrays.equals(a, b))
+        return -1;
+    int i = 0;
+    // Check blocks without branches, then find the difference in the block:
+    for (; i + BLOCK <= length; i += BLOCK) {
+      int diff = 0;
+      for (int j = i; j < i + BLOCK; j++)
+        diff |= a[aFrom + j] ^ b[bFrom + j];
+      if (diff != 0)
+        break;
+    }
+    for (; i < length; i++)
+      if (a[aFrom + i] != b[bFrom + i])
+        return i;
+    return -1;
+  }
+
+  /** Like {@link #mismatch(char[], int, char[], int, int)}, for Latin-1 bytes and chars. */
+  static int mismatch(final byte[] a, final int aFrom, final char[] b, final int bFrom, final int length) {
+    for (int i = 0; i < length; i++)
+      if ((a[aFrom + i] & 0xFF) != b[bFrom + i])
+        return i;
+    return -1;
+  }
+
+  /** Like {@link #mismatch(char[], int, char[], int, int)}, for bytes. */
+  static int mismatch(final byte[] a, final int aFrom, final byte[] b, final int bFrom, final int length) {
+    if (aFrom == 0 && bFrom == 0 && a.length == length && b.length == length)
+      if (Arrays.equals(a, b))
+        return -1;
+    int i = 0;
+    for (; i + BLOCK <= length; i += BLOCK) {
+      int diff = 0;
+      for (int j = i; j < i + BLOCK; j++)
+        diff |= a[aFrom + j] ^ b[bFrom + j];
+      if (diff != 0)
+        break;
+    }
+    for (; i < length; i++)
+      if (a[aFrom + i] != b[bFrom + i])
+        return i;
+    return -1;
+  }
+
+  /**
+   * Index of the first char in <code>a[from..to)</code> that is not Latin-1
+   * (greater than 0xFF), or -1 if there is none.
+   */
+  static int indexOfNonLatin1(final char[] a, final int from, final int to) {
+    int i = from;
+    for (; i + BLOCK <= to; i += BLOCK) {
+      int or = 0;
+      for (int j = i; j < i + BLOCK; j++)
+        or |= a[j];
+      if (or > 0xFF)
+        break;
+    }
+    for (; i < to; i++)
+      if (a[i] > 0xFF)
+        return i;
+    return -1;
+  }
+
+  /**
+   * Narrows chars to bytes. Chars greater than <i>high</i> are replaced by the
+   * substitute.
+   */
+  static void narrow(final char[] src, final int srcFrom, final byte[] dst, final int dstFrom, final int length,
+      final char high, final byte substitute) {
+    for (int i = 0; i < length; i++) {
+      final char c = src[srcFrom + i];
+      dst[dstFrom + i] = c > high ? substitute : (byte) c;
+    }
+  }
+
+  /** Narrows Latin-1 chars to bytes. The chars must all be Latin-1. */
+  static void narrow(final char[] src, final int srcFrom, final byte[] dst, final int dstFrom, final int length) {
+    for (int i = 0; i < length; i++)
+      dst[dstFrom + i] = (byte) src[srcFrom + i];
+  }
+
+  /** Copies Latin-1 bytes to chars. */
+  static void inflate(final byte[] src, final int srcFrom, final char[] dst, final int dstFrom, final int length) {
+    for (int i = 0; i < length; i++)
+      dst[dstFrom + i] = (char) (src[srcFrom + i] & 0xFF);
+  }
+}
@@ -0,0 +1,205 @@
+package ch.claude_martin.stringwrappers;
+
+import java.util.Arrays;
+
+/**
+ * A {@link CharMatcher} that looks up Latin-1 characters in a bitset of 256
+ * bits. Only other characters are checked by a second matcher. Bitsets are
+ * combined directly by {@link #negate()}, {@link #or(CharMatcher)} and
+ * {@link #and(CharMatcher)}.
+ *
+ * <p>
+ * This also contains the loops used by {@link StringWrapper} to search for
+ * matching characters. They read the sequence in blocks, so that nothing is
+ * boxed and wrappers are not accessed by {@link CharSequence#charAt(int)}. They
+ * accept any matcher, because precomputing a matcher costs 256 calls, which is
+ * more than a short search needs.
+ *
+ * @see CharMatcher#precompute(CharMatcher)
+ */
+final class BitSetMatcher implements CharMatcher {
+  /** Matchers for other characters, which are recognized when bitsets are combined. */
+  private static final class Other {
+    /** Other characters never match. */
+    static final CharMatcher NONE = c -> false;
+    /** Other characters always match. */
+    static final CharMatcher ALL  = c -> true;
+  }
+
+  /** Size of the blocks that are read at once. */
+  private static final int  BLOCK = 512;
+
+  private final long[]      latin1;
+  /** Matcher for characters that are not Latin-1. */
+  private final CharMatcher other;
+
+  private BitSetMatcher(final long[] latin1, final CharMatcher other) {
+    this.latin1 = latin1;
+    this.other = other;
+  }
+
+  static BitSetMatcher of(final CharMatcher matcher) {
+    if (matcher instanceof BitSetMatcher)
+      return (BitSetMatcher) matcher;
+    final long[] latin1 = new long[4];
+    for (int c = 0; c < 256; c++)
+      if (matcher.matches((char) c))
+        latin1[c >>> 6] |= 1L << c;
+    return new BitSetMatcher(latin1, matcher);
+  }
+
+  /** Matches the given characters. The array is modified. */
+  static BitSetMatcher anyOf(final char[] chars) {
+    final long[] latin1 = new long[4];
+    Arrays.sort(chars);
+    int n = 0;
+    for (int i = 0; i < chars.length; i++) {
+      final char c = chars[i];
+      if (c < 256)
+        latin1[c >>> 6] |= 1L << c;
+      else if (n == 0 || chars[n - 1] != c)
+        chars[n++] = c;
+    }
+    if (n == 0)
+      return new BitSetMatcher(latin1, Other.NONE);
+    if (n == 1) {
+      final char o = chars[0];
+      return new BitSetMatcher(latin1, c -> c == o);
+    }
+    final char[] others = Arrays.copyOf(chars, n);
+    return new BitSetMatcher(latin1, c -> Arrays.binarySearch(others, c) >= 0);
+  }
+
+  /** Matches all characters from <i>first</i> to <i>last</i>, inclusive. */
+  static BitSetMatcher inRange(final char first, final char last) {
+    final long[] latin1 = new long[4];
+    for (int c = first; c <= last && c < 256; c++)
+      latin1[c >>> 6] |= 1L << c;
+    if (last < 256)
+      return new BitSetMatcher(latin1, Other.NONE);
+    if (last == Character.MAX_VALUE && first < 256)
+      return new BitSetMatcher(latin1, Other.ALL);
+    return new BitSetMatcher(latin1, c -> c >= first && c <= last);
+  }
+
+  @Override
+  public boolean matches(final char c) {
+    if (c < 256)
+      return (this.latin1[c >>> 6] & 1L << c) != 0;
+    return this.other.matches(c);
+  }
+
+  @Override
+  public CharMatcher negate() {
+    final long[] latin1 = new long[4];
+    for (int i = 0; i < 4; i++)
+      latin1[i] = ~this.latin1[i];
+    final CharMatcher o = this.other;
+    return new BitSetMatcher(latin1, o == Other.NONE ? Other.ALL : o == Other.ALL ? Other.NONE : c -> !o.matches(c));
+  }
+
+  @Override
+  public CharMatcher or(final CharMatcher matcher) {
+    final BitSetMatcher that = of(matcher);
+    final long[] latin1 = new long[4];
+    for (int i = 0; i < 4; i++)
+      latin1[i] = this.latin1[i] | that.latin1[i];
+    final CharMatcher a = this.other, b = that.other;
+    final CharMatcher o;
+    if (a == Other.ALL || b == Other.NONE)
+      o = a;
+    else if (b == Other.ALL || a == Other.NONE)
+      o = b;
+    else
+      o = c -> a.matches(c) || b.matches(c);
+    return new BitSetMatcher(latin1, o);
+  }
+
+  @Override
+  public CharMatcher and(final CharMatcher matcher) {
+    final BitSetMatcher that = of(matcher);
+    final long[] latin1 = new long[4];
+    for (int i = 0; i < 4; i++)
+      latin1[i] = this.latin1[i] & that.latin1[i];
+    final CharMatcher a = this.other, b = that.other;
+    final CharMatcher o;
+    if (a == Other.NONE || b == Other.ALL)
+      o = a;
+    else if (b == Other.NONE || a == Other.ALL)
+      o = b;
+    else
+      o = c -> a.matches(c) && b.matches(c);
+    return new BitSetMatcher(latin1, o);
+  }
+
+  /** Index of the first matching character at or after <i>from</i>, or -1. */
+  static int indexIn(final CharMatcher m, final CharSequence s, final int from) {
+    final int length = s.length();
+    final int begin = Math.max(0, from);
+    if (begin >= length)
+      return -1;
+    // The first block is small, in case the match is near.
+    char[] buf = new char[Math.min(length - begin, 32)];
+    for (int pos = begin; pos < length; pos += buf.length) {
+      if (pos > begin && buf.length < BLOCK)
+        buf = new char[Math.min(BLOCK, Math.min(length - pos, 2 * buf.length))];
+      final int n = Math.min(buf.length, length - pos);
+      StringUtils.getChars(s, pos, pos + n, buf, 0);
+      for (int i = 0; i < n; i++)
+        if (m.matches(buf[i]))
+          return pos + i;
+    }
+    return -1;
+  }
+
+  /**
+   * Index of the last matching character at or before <i>from</i>, or -1.
+   *
+   * @see String#lastIndexOf(int, int)
+   */
+  static int lastIndexIn(final CharMatcher m, final CharSequence s, final int from) {
+    final int end = Math.min(from, s.length() - 1) + 1;
+    if (end <= 0)
+      return -1;
+    char[] buf = new char[Math.min(end, 32)];
+    for (int pos = end; pos > 0; pos -= buf.length) {
+      if (pos < end && buf.length < BLOCK)
+        buf = new char[Math.min(BLOCK, Math.min(pos, 2 * buf.length))];
+      final int n = Math.min(buf.length, pos);
+      StringUtils.getChars(s, pos - n, pos, buf, 0);
+      for (int i = n - 1; i >= 0; i--)
+        if (m.matches(buf[i]))
+          return pos - n + i;
+    }
+    return -1;
+  }
+
+  /** Number of matching characters in the sequence. */
+  static int countIn(final CharMatcher m, final CharSequence s) {
+    final int length = s.length();
+    final char[] buf = new char[Math.min(length, BLOCK)];
+    int count = 0;
+    for (int pos = 0; pos < length; pos += buf.length) {
+      final int n = Math.min(buf.length, length - pos);
+      StringUtils.getChars(s, pos, pos + n, buf, 0);
+      for (int i = 0; i < n; i++)
+        if (m.matches(buf[i]))
+          count++;
+    }
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("CharMatcher[");
+    for (char c = 0x20; c < 256; c++)
+      if (c < 0x7F || c > 0xA0)
+        if (this.matches(c))
+          sb.append(c);
+    if (this.other == Other.ALL)
+      sb.append(", all other");
+    else if (this.other != Other.NONE)
+      sb.append(", ...");
+    return sb.append(']').toString();
+  }
+}
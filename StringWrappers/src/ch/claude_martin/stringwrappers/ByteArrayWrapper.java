@@ -21,6 +21,37 @@ public class ByteArrayWrapper extends AbstractStringWrapper {
     return this.bytes.length;
   }
 
+  @Override
+  long retained(final boolean bytes) {
+    return this.bytes.length;
+  }
+
+  /** Index of the first character in the array. */
+  int offset() {
+    return 0;
+  }
+
+  @Override
+  public int indexOf(final char chr, final int fromIndex) {
+    final int length = this.length();
+    if (chr > 0xFF || fromIndex >= length)
+      return -1;
+    final int offset = this.offset();
+    final int i = ArrayKernels.indexOf(this.bytes, offset + Math.max(0, fromIndex), offset + length, (byte) chr);
+    return i < 0 ? -1 : i - offset;
+  }
+
+  @Override
+  public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    StringUtils.checkRange(srcBegin, srcEnd, this.length());
+    inflate(this.bytes, srcBegin, srcEnd, dst, dstBegin);
+  }
+
+  /** Copies Latin-1 bytes to chars. */
+  static void inflate(final byte[] src, final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    ArrayKernels.inflate(src, srcBegin, dst, dstBegin, srcEnd - srcBegin);
+  }
+
   /**
    * Wraps a given array of characters.
    */
@@ -66,11 +97,27 @@ public class ByteArrayWrapper extends AbstractStringWrapper {
       return this.length;
     }
 
+    @Override
+    public int length() {
+      return this.length;
+    }
+
+    @Override
+    int offset() {
+      return this.offset;
+    }
+
     @Override
     public char charAt(final int index) {
-      if (index < 0 || index >= this.end)
+      if (index < 0 || index >= this.length)
         throw new StringIndexOutOfBoundsException(index);
       return (char) (this.bytes[this.offset + index] & 0xFF);
     }
+
+    @Override
+    public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+      StringUtils.checkRange(srcBegin, srcEnd, this.length);
+      inflate(this.bytes, this.offset + srcBegin, this.offset + srcEnd, dst, dstBegin);
+    }
   }
 }
@@ -21,6 +21,32 @@ public class CharArrayWrapper extends AbstractStringWrapper {
     return this.chars.length;
   }
 
+  @Override
+  long retained(final boolean bytes) {
+    return bytes ? 2L * this.chars.length : this.chars.length;
+  }
+
+  /** Index of the first character in the array. */
+  int offset() {
+    return 0;
+  }
+
+  @Override
+  public int indexOf(final char chr, final int fromIndex) {
+    final int length = this.length();
+    if (fromIndex >= length)
+      return -1;
+    final int offset = this.offset();
+    final int i = ArrayKernels.indexOf(this.chars, offset + Math.max(0, fromIndex), offset + length, chr);
+    return i < 0 ? -1 : i - offset;
+  }
+
+  @Override
+  public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    StringUtils.checkRange(srcBegin, srcEnd, this.length());
+    System.arraycopy(this.chars, srcBegin, dst, dstBegin, srcEnd - srcBegin);
+  }
+
   /**
    * Wraps a given array of characters.
    */
@@ -61,11 +87,27 @@ public class CharArrayWrapper extends AbstractStringWrapper {
       return this.length;
     }
 
+    @Override
+    public int length() {
+      return this.length;
+    }
+
+    @Override
+    int offset() {
+      return this.offset;
+    }
+
     @Override
     public char charAt(final int index) {
-      if (index < 0 || index >= this.end)
+      if (index < 0 || index >= this.length)
         throw new StringIndexOutOfBoundsException(index);
       return this.chars[this.offset + index];
     }
+
+    @Override
+    public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+      StringUtils.checkRange(srcBegin, srcEnd, this.length);
+      System.arraycopy(this.chars, this.offset + srcBegin, dst, dstBegin, srcEnd - srcBegin);
+    }
   }
 }
@@ -1,5 +1,7 @@
 package ch.claude_martin.stringwrappers;
 
+import static java.util.Objects.requireNonNull;
+
 import java.util.function.Function;
 
 /**
@@ -15,16 +17,34 @@ public interface CharMapper extends Function<Character, Character> {
     return this.map(t);
   }
 
-  public static final CharMapper TO_UPPER_CASE = new CharMapper() {
-    @Override
-    public char map(final char c) {
-      return Character.toUpperCase(c);
-    }
-  };
-  public static final CharMapper TO_LOWER_CASE = new CharMapper() {
+  /**
+   * Creates a mapper that applies <i>first</i> and then <i>second</i>. Nested
+   * compositions are flattened and simplified.
+   */
+  public static CharMapper compose(final CharMapper first, final CharMapper second) {
+    requireNonNull(first, "first");
+    requireNonNull(second, "second");
+    return ComposedMapper.compose(first, second);
+  }
+
+  /**
+   * Compiles the given mapper into a lookup table, so that mapping a character
+   * is a single array load. The table for Latin-1 is built at once, the rest of
+   * the BMP in pages of 256 characters when they are used. The given mapper
+   * must always return the same result for the same character.
+   */
+  public static CharMapper lookupTable(final CharMapper mapper) {
+    requireNonNull(mapper, "mapper");
+    return LookupTableMapper.of(mapper);
+  }
+
+  public static final CharMapper IDENTITY      = new CharMapper() {
     @Override
     public char map(final char c) {
-      return Character.toLowerCase(c);
+      return c;
     }
   };
+  public static final CharMapper ROT13         = LookupTableMapper.of(c -> Rot13.rotate(c));
+  public static final CharMapper TO_UPPER_CASE = LookupTableMapper.of(c -> Character.toUpperCase(c));
+  public static final CharMapper TO_LOWER_CASE = LookupTableMapper.of(c -> Character.toLowerCase(c));
 }
@@ -0,0 +1,98 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collection;
+import java.util.function.Predicate;
+
+/**
+ * Decides for each character whether it matches. This is used to
+ * {@link StringWrapper#trim(CharMatcher) trim}, {@link StringWrapper#split(CharMatcher)
+ * split} and search strings.
+ *
+ * <p>
+ * All matchers created by the factories of this interface and by
+ * {@link #negate()}, {@link #or(CharMatcher)} and {@link #and(CharMatcher)} are
+ * {@link #precompute(CharMatcher) precomputed}: Latin-1 characters are looked
+ * up in a bitset and only other characters are checked by a predicate. Other
+ * matchers, such as lambdas, are used as they are.
+ *
+ * @see CharMatchers
+ */
+@FunctionalInterface
+public interface CharMatcher extends Predicate<Character> {
+  /** Checks if the character matches. */
+  public boolean matches(final char c);
+
+  @Override
+  public default boolean test(final Character t) {
+    return this.matches(t);
+  }
+
+  /** Matches all characters that this does not match. */
+  @Override
+  public default CharMatcher negate() {
+    return BitSetMatcher.of(this).negate();
+  }
+
+  /** Matches all characters that this or the other matcher matches. */
+  public default CharMatcher or(final CharMatcher other) {
+    requireNonNull(other, "other");
+    return BitSetMatcher.of(this).or(BitSetMatcher.of(other));
+  }
+
+  /** Matches all characters that both this and the other matcher match. */
+  public default CharMatcher and(final CharMatcher other) {
+    requireNonNull(other, "other");
+    return BitSetMatcher.of(this).and(BitSetMatcher.of(other));
+  }
+
+  /**
+   * Compiles the given matcher into a bitset for Latin-1. Other characters are
+   * still checked by the given matcher, which must always return the same
+   * result for the same character.
+   */
+  public static CharMatcher precompute(final CharMatcher matcher) {
+    requireNonNull(matcher, "matcher");
+    return BitSetMatcher.of(matcher);
+  }
+
+  /** Matches only the given character. */
+  public static CharMatcher is(final char c) {
+    return BitSetMatcher.anyOf(new char[] { c });
+  }
+
+  /** Matches any of the given characters. */
+  public static CharMatcher anyOf(final char... chars) {
+    requireNonNull(chars, "chars");
+    return BitSetMatcher.anyOf(chars.clone());
+  }
+
+  /** Matches any of the characters in the given sequence. */
+  public static CharMatcher anyOf(final CharSequence chars) {
+    requireNonNull(chars, "chars");
+    return BitSetMatcher.anyOf(chars.toString().toCharArray());
+  }
+
+  /** Matches any of the given characters. */
+  public static CharMatcher anyOf(final Collection<Character> chars) {
+    requireNonNull(chars, "chars");
+    final char[] array = new char[chars.size()];
+    int i = 0;
+    for (final Character c : chars)
+      array[i++] = c;
+    return BitSetMatcher.anyOf(array);
+  }
+
+  /** Matches all characters except the given ones. */
+  public static CharMatcher noneOf(final CharSequence chars) {
+    return anyOf(chars).negate();
+  }
+
+  /** Matches all characters from <i>first</i> to <i>last</i>, inclusive. */
+  public static CharMatcher inRange(final char first, final char last) {
+    if (first > last)
+      throw new IllegalArgumentException(first + " > " + last);
+    return BitSetMatcher.inRange(first, last);
+  }
+}
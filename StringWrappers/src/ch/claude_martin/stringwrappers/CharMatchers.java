@@ -0,0 +1,37 @@
+package ch.claude_martin.stringwrappers;
+
+/**
+ * Predefined {@link CharMatcher}s. All of them are precomputed.
+ *
+ * <p>
+ * They are not declared in {@link CharMatcher} itself. The implementation of
+ * the matchers extends that interface, so it can only be initialized after the
+ * interface. Constants in the interface would need the implementation while
+ * the interface is initialized, and two threads could then wait for each other.
+ */
+public final class CharMatchers {
+  private CharMatchers() {
+    throw new RuntimeException("No instace for you!");
+  }
+
+  public static final CharMatcher ANY             = CharMatcher.inRange('\0', '\uFFFF');
+  public static final CharMatcher NONE            = CharMatcher.anyOf();
+  /** Characters that are removed by {@link StringWrapper#trim()}. */
+  public static final CharMatcher TRIM            = CharMatcher.inRange('\0', ' ');
+  public static final CharMatcher ASCII           = CharMatcher.inRange('\0', '\u007F');
+  public static final CharMatcher LATIN1          = CharMatcher.inRange('\0', '\u00FF');
+  /** @see Character#isWhitespace(char) */
+  public static final CharMatcher WHITESPACE      = CharMatcher.precompute(c -> Character.isWhitespace(c));
+  /** @see Character#isDigit(char) */
+  public static final CharMatcher DIGIT           = CharMatcher.precompute(c -> Character.isDigit(c));
+  /** @see Character#isLetter(char) */
+  public static final CharMatcher LETTER          = CharMatcher.precompute(c -> Character.isLetter(c));
+  /** @see Character#isLetterOrDigit(char) */
+  public static final CharMatcher LETTER_OR_DIGIT = CharMatcher.precompute(c -> Character.isLetterOrDigit(c));
+  /** @see Character#isUpperCase(char) */
+  public static final CharMatcher UPPER_CASE      = CharMatcher.precompute(c -> Character.isUpperCase(c));
+  /** @see Character#isLowerCase(char) */
+  public static final CharMatcher LOWER_CASE      = CharMatcher.precompute(c -> Character.isLowerCase(c));
+  /** @see Character#isISOControl(char) */
+  public static final CharMatcher ISO_CONTROL     = CharMatcher.precompute(c -> Character.isISOControl(c));
+}
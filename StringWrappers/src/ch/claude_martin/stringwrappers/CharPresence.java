@@ -0,0 +1,123 @@
+package ch.claude_martin.stringwrappers;
+
+/**
+ * Summary of the characters that are present in a sequence. Latin-1 characters
+ * are stored exactly in a bitset of 256 bits. All other characters are stored
+ * in a bloom filter of 64 bits, so {@link #mayContain(char)} can return false
+ * positives for them.
+ *
+ * <p>
+ * This is immutable. Summaries of multiple parts can be combined by
+ * {@link #union(CharPresence)}.
+ *
+ * @see AbstractStringWrapper#canContain(char)
+ */
+final class CharPresence {
+  /** No characters. */
+  static final CharPresence EMPTY = new CharPresence(new long[4], 0L);
+  /** All characters. This is used when the content is unknown. */
+  static final CharPresence ALL   = new CharPresence(new long[] { -1L, -1L, -1L, -1L }, -1L);
+
+  private final long[]      latin1;
+  private final long        other;
+
+  private CharPresence(final long[] latin1, final long other) {
+    this.latin1 = latin1;
+    this.other = other;
+  }
+
+  /** Bit in the bloom filter for a character that is not Latin-1. */
+  private static long bit(final char c) {
+    return 1L << (c * 0x9E3779B1 >>> 26);
+  }
+
+  /** Summary of the given range of the sequence. */
+  static CharPresence of(final CharSequence s, final int begin, final int end) {
+    final long[] latin1 = new long[4];
+    long other = 0L;
+    final char[] buf = new char[Math.min(512, end - begin)];
+    for (int i = begin; i < end; i += buf.length) {
+      final int n = Math.min(buf.length, end - i);
+      StringUtils.getChars(s, i, i + n, buf, 0);
+      for (int j = 0; j < n; j++) {
+        final char c = buf[j];
+        if (c < 256)
+          latin1[c >>> 6] |= 1L << c;
+        else
+          other |= bit(c);
+      }
+    }
+    return new CharPresence(latin1, other);
+  }
+
+  /**
+   * Summary of the given sequence. This uses the summary of a wrapper, if it
+   * has one.
+   */
+  static CharPresence of(final CharSequence s) {
+    if (s instanceof AbstractStringWrapper)
+      return ((AbstractStringWrapper) s).presence();
+    if (s.length() == 0)
+      return EMPTY;
+    return of(s, 0, s.length());
+  }
+
+  /** Returns false if the character is certainly not present. */
+  boolean mayContain(final char c) {
+    if (c < 256)
+      return (this.latin1[c >>> 6] & 1L << c) != 0;
+    return (this.other & bit(c)) != 0;
+  }
+
+  /** Checks if any character outside Latin-1 may be present. */
+  boolean hasOther() {
+    return this.other != 0L;
+  }
+
+  /** Summary of both. */
+  CharPresence union(final CharPresence o) {
+    if (this == o || o == EMPTY || this == ALL)
+      return this;
+    if (this == EMPTY || o == ALL)
+      return o;
+    final long[] latin1 = new long[4];
+    for (int i = 0; i < 4; i++)
+      latin1[i] = this.latin1[i] | o.latin1[i];
+    return new CharPresence(latin1, this.other | o.other);
+  }
+
+  /**
+   * Summary of the mapped characters. The mapper must always return the same
+   * result for the same character. Characters outside Latin-1 are not known
+   * exactly, so this returns null if any of them may be present. Then the
+   * mapped sequence has to be scanned.
+   */
+  CharPresence map(final CharMapper mapper) {
+    if (this.other != 0L)
+      return null;
+    final long[] latin1 = new long[4];
+    long other = 0L;
+    for (int c = 0; c < 256; c++) {
+      if ((this.latin1[c >>> 6] & 1L << c) == 0)
+        continue;
+      final char m = mapper.map((char) c);
+      if (m < 256)
+        latin1[m >>> 6] |= 1L << m;
+      else
+        other |= bit(m);
+    }
+    return new CharPresence(latin1, other);
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder sb = new StringBuilder("CharPresence[");
+    for (char c = 0x20; c < 256; c++)
+      if (c < 0x7F || c > 0xA0)
+        if (this.mayContain(c))
+          sb.append(c);
+    if (this.other != 0L)
+      sb.append(", other=").append(Long.toHexString(this.other));
+    return sb.append(']').toString();
+  }
+}
@@ -0,0 +1,148 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+
+/**
+ * Spliterator over the characters or code points of a range of some
+ * {@link CharSequence}. It splits by index, so parallel streams can process
+ * the sequence in parallel. A {@link Concat} is split at the boundary of a part
+ * if there is one near the middle. Code points are never split.
+ *
+ * @see StringWrapper#chars()
+ * @see StringWrapper#codePoints()
+ */
+final class CharSpliterator implements Spliterator.OfInt {
+  /** Characteristics of a spliterator over characters. */
+  static final int           CHARS       = ORDERED | SIZED | SUBSIZED | NONNULL;
+  /** Characteristics of a spliterator over code points. */
+  static final int           CODE_POINTS = ORDERED | NONNULL;
+
+  /** Number of characters that are copied at once by forEachRemaining. */
+  private static final int   BATCH       = 1024;
+  /** Ranges shorter than this are not split. */
+  private static final int   MIN_SPLIT   = 2 * BATCH;
+
+  private final CharSequence source;
+  private final boolean      codePoints;
+  private int                index;
+  private final int          fence;
+  private final int          characteristics;
+
+  CharSpliterator(final CharSequence source, final int index, final int fence, final boolean codePoints) {
+    this(source, index, fence, codePoints, characteristics(source, codePoints));
+  }
+
+  private CharSpliterator(final CharSequence source, final int index, final int fence, final boolean codePoints,
+      final int characteristics) {
+    this.source = source;
+    this.index = index;
+    this.fence = fence;
+    this.codePoints = codePoints;
+    this.characteristics = characteristics;
+  }
+
+  /**
+   * Characteristics of a spliterator over the given sequence. It is only
+   * {@link #IMMUTABLE} if the sequence {@link StringUtils#isImmutable(CharSequence)
+   * can never change}.
+   */
+  static int characteristics(final CharSequence source, final boolean codePoints) {
+    final int c = codePoints ? CODE_POINTS : CHARS;
+    return StringUtils.isImmutable(source) ? c | IMMUTABLE : c;
+  }
+
+  /** Spliterator over all characters of the given sequence. */
+  static CharSpliterator chars(final CharSequence source) {
+    return new CharSpliterator(source, 0, source.length(), false);
+  }
+
+  /** Spliterator over all code points of the given sequence. */
+  static CharSpliterator codePoints(final CharSequence source) {
+    return new CharSpliterator(source, 0, source.length(), true);
+  }
+
+  @Override
+  public OfInt trySplit() {
+    final int lo = this.index;
+    if (this.fence - lo < MIN_SPLIT)
+      return null;
+    int mid = this.source instanceof Concat ? ((Concat) this.source).splitPoint(lo, this.fence)
+        : (lo + this.fence) >>> 1;
+    if (this.codePoints && Character.isLowSurrogate(this.source.charAt(mid))
+        && Character.isHighSurrogate(this.source.charAt(mid - 1)))
+      mid++;
+    this.index = mid;
+    return new CharSpliterator(this.source, lo, mid, this.codePoints, this.characteristics);
+  }
+
+  @Override
+  public boolean tryAdvance(final IntConsumer action) {
+    requireNonNull(action, "action");
+    if (this.index >= this.fence)
+      return false;
+    final char c = this.source.charAt(this.index++);
+    if (this.codePoints && Character.isHighSurrogate(c) && this.index < this.fence) {
+      final char d = this.source.charAt(this.index);
+      if (Character.isLowSurrogate(d)) {
+        this.index++;
+        action.accept(Character.toCodePoint(c, d));
+        return true;
+      }
+    }
+    action.accept(c);
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(final IntConsumer action) {
+    requireNonNull(action, "action");
+    int i = this.index;
+    final int end = this.fence;
+    if (i >= end)
+      return;
+    this.index = end;
+    final char[] buf = new char[Math.min(BATCH, end - i)];
+    int high = -1; // pending high surrogate
+    while (i < end) {
+      final int n = Math.min(buf.length, end - i);
+      StringUtils.getChars(this.source, i, i + n, buf, 0);
+      i += n;
+      if (!this.codePoints) {
+        for (int j = 0; j < n; j++)
+          action.accept(buf[j]);
+        continue;
+      }
+      for (int j = 0; j < n; j++) {
+        final char c = buf[j];
+        if (high >= 0) {
+          if (Character.isLowSurrogate(c)) {
+            action.accept(Character.toCodePoint((char) high, c));
+            high = -1;
+            continue;
+          }
+          action.accept(high);
+          high = -1;
+        }
+        if (Character.isHighSurrogate(c))
+          high = c;
+        else
+          action.accept(c);
+      }
+    }
+    if (high >= 0)
+      action.accept(high);
+  }
+
+  @Override
+  public long estimateSize() {
+    return this.fence - this.index;
+  }
+
+  @Override
+  public int characteristics() {
+    return this.characteristics;
+  }
+}
@@ -1,6 +1,23 @@
 package ch.claude_martin.stringwrappers;
 
-/** Maps each character to a some character. */
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Maps each character to a some character.
+ *
+ * <p>
+ * Nested mappings are fused: If the source is a {@link CharWrapper},
+ * {@link Rot13} or {@link ASCII} then the mappers are
+ * {@link CharMapper#compose(CharMapper, CharMapper) composed} and only one
+ * wrapper is created.
+ *
+ * <p>
+ * The mappers of {@link UpperCase}, {@link LowerCase}, {@link Rot13} and
+ * {@link ASCII} are lookup tables. Any other mapper can opt in by using
+ * {@link CharMapper#lookupTable(CharMapper)}. When only lookup tables are
+ * fused, the composition is compiled into one table, so that each character is
+ * mapped by a single array load.
+ */
 public class CharWrapper extends AbstractSourceWrapper {
 
   private final CharMapper mapper;
@@ -10,24 +27,72 @@ public class CharWrapper extends AbstractSourceWrapper {
     this.mapper = mapper;
   }
 
-  public static StringWrapper of(final CharSequence source, final CharMapper mapper) {
+  public static StringWrapper of(CharSequence source, final CharMapper mapper) {
+    requireNonNull(source, "source");
+    requireNonNull(mapper, "mapper");
+    source = NullWrapper.unwrap(source);
     if (0 == source.length())
       return EmptyWrapper.INSTANCE;
+    final CharMapper inner = mapperOf(source);
+    if (inner != null)
+      return of(((AbstractSourceWrapper) source).getSource(), CharMapper.compose(inner, mapper));
+    if (mapper == CharMapper.IDENTITY)
+      return NullWrapper.of(source);
     return new CharWrapper(source, mapper);
   }
 
+  /**
+   * Returns the mapper of a wrapper that maps each character, or
+   * <code>null</code> if the given sequence is no such wrapper.
+   */
+  static CharMapper mapperOf(final CharSequence source) {
+    if (source instanceof CharWrapper)
+      return ((CharWrapper) source).getMapper();
+    if (source instanceof Rot13)
+      return CharMapper.ROT13;
+    if (source instanceof ASCII)
+      return ((ASCII) source).mapper();
+    return null;
+  }
+
   final CharMapper getMapper() {
     return this.mapper;
   }
 
+  /** Only a lookup table guarantees that the same character is always mapped the same. */
+  @Override
+  boolean isImmutable() {
+    return this.mapper instanceof LookupTableMapper && super.isImmutable();
+  }
+
+  @Override
+  CharPresence computePresence() {
+    final CharPresence p = CharPresence.of(this.getSource()).map(this.mapper);
+    return p != null ? p : super.computePresence();
+  }
+
+  /** Applies the same mapping to some other source. */
+  StringWrapper rewrap(final CharSequence source) {
+    return of(source, this.mapper);
+  }
+
   @Override
   public final char charAt(final int index) {
     return this.mapper.map(this.getSource().charAt(index));
   }
 
+  @Override
+  public final void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    StringUtils.getChars(this.getSource(), srcBegin, srcEnd, dst, dstBegin);
+    final int dstEnd = dstBegin + srcEnd - srcBegin;
+    for (int i = dstBegin; i < dstEnd; i++) {
+      dst[i] = this.mapper.map(dst[i]);
+    }
+  }
+
   @Override
   public final CharSequence subSequence(final int begin, final int end) {
-    return of(Substring.of(this.getSource(), begin, end), this.mapper);
+    return Substring.of(this, begin, end);
   }
 
 }
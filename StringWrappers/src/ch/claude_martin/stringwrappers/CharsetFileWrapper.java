@@ -0,0 +1,473 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Wrapper that uses a file in any encoding. Characters are decoded lazily in
+ * blocks. Malformed input is replaced by U+FFFD.
+ *
+ * <p>
+ * For fixed-width charsets (ISO-8859-1, US-ASCII and UTF-16) the position of
+ * each block is calculated directly. For all other charsets the file is scanned
+ * once to count the characters and to build a sparse index. This index
+ * contains the byte offset of every <i>n</i>-th character. {@link #charAt(int)}
+ * then only decodes the block starting at the nearest checkpoint. Only
+ * stateless charsets (such as UTF-8) can be decoded like that. For UTF-32 the
+ * byte order is detected once from the byte order mark and all blocks are then
+ * decoded as UTF-32BE or UTF-32LE. Stateful charsets (such as ISO-2022-JP) are
+ * rejected.
+ *
+ * <p>
+ * Note: This does not implement {@link AutoCloseable}. The internally created
+ * {@link FileChannel} will be closed automatically.
+ *
+ * @see FileWrapper#of(Path, Charset)
+ */
+public final class CharsetFileWrapper extends AbstractStringWrapper {
+  /** Default number of characters between two checkpoints. */
+  public static final int          DEFAULT_INTERVAL = 1024;
+
+  private static final Charset     UTF_32BE         = Charset.forName("UTF-32BE");
+  private static final Charset     UTF_32LE         = Charset.forName("UTF-32LE");
+  /** EBCDIC charsets that switch between single and double bytes by SO and SI. */
+  private static final Set<String> STATEFUL_EBCDIC  = new HashSet<>(Arrays.asList("X-IBM930", "X-IBM933",
+      "X-IBM935", "X-IBM937", "X-IBM939", "X-IBM1364", "X-IBM1371", "X-IBM1388", "X-IBM1390", "X-IBM1399"));
+
+  /** A decoded block of characters. */
+  private static final class Block {
+    final int    start;
+    final char[] chars;
+
+    Block(final int start, final char[] chars) {
+      this.start = start;
+      this.chars = chars;
+    }
+  }
+
+  private final FileChannel channel;
+  private final Charset     charset;
+  /** Charset used to decode the blocks. For UTF-32 it has an explicit byte order. */
+  private final Charset     decoding;
+  private final int         length;
+  /** Characters per block. */
+  private final int         interval;
+  /** Bytes per char for fixed-width charsets, or 0. */
+  private final int         width;
+  /** Byte offset of the first character, i.e. length of the BOM. */
+  private final long        offset;
+  /** Byte order of UTF-16. */
+  private final boolean     littleEndian;
+  /** Char index of each checkpoint, with the length as the last entry. */
+  private final int[]       checkpointChars;
+  /** Byte offset of each checkpoint, with the file size as the last entry. */
+  private final long[]      checkpointBytes;
+  /** The block that was decoded last. */
+  private volatile Block    last;
+
+  // Finalizer Guardian idiom:
+  @SuppressWarnings("unused")
+  private final Object      finalizerGuardian = new Object() {
+    @Override
+    protected void finalize() throws Throwable {
+      CharsetFileWrapper.this.channel.close();
+    }
+  };
+
+  private CharsetFileWrapper(final FileChannel channel, final Charset charset, final Charset decoding,
+      final int length, final int interval, final int width, final long offset, final boolean littleEndian,
+      final int[] checkpointChars, final long[] checkpointBytes) {
+    this.channel = channel;
+    this.charset = charset;
+    this.decoding = decoding;
+    this.length = length;
+    this.interval = interval;
+    this.width = width;
+    this.offset = offset;
+    this.littleEndian = littleEndian;
+    this.checkpointChars = checkpointChars;
+    this.checkpointBytes = checkpointBytes;
+  }
+
+  /**
+   * Creates a wrapper from the given file, using the given charset. The file
+   * will be closed by this wrapper when it is removed by garbage collection.
+   *
+   * @param file
+   *          the file
+   * @param charset
+   *          the encoding of the file
+   * @return New wrapper.
+   * @throws IOException
+   */
+  public static StringWrapper of(final Path file, final Charset charset) throws IOException {
+    return of(file, charset, DEFAULT_INTERVAL);
+  }
+
+  /**
+   * Creates a wrapper from the given file, using the given charset. The file
+   * will be closed by this wrapper when it is removed by garbage collection.
+   *
+   * @param file
+   *          the file
+   * @param charset
+   *          the encoding of the file
+   * @param interval
+   *          number of characters between two checkpoints, which is also the
+   *          size of the decoded blocks.
+   * @return New wrapper.
+   * @throws IOException
+   * @throws IllegalArgumentException
+   *           if the charset is stateful.
+   */
+  public static StringWrapper of(final Path file, final Charset charset, final int interval) throws IOException {
+    requireNonNull(file, "file");
+    requireNonNull(charset, "charset");
+    if (interval < 2)
+      throw new IllegalArgumentException("interval = " + interval);
+    if (isStateful(charset))
+      throw new IllegalArgumentException("Stateful charset: " + charset.name());
+    final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      final StringWrapper result = create(channel, charset, interval);
+      if (result.isEmpty())
+        channel.close();
+      return result;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static StringWrapper create(final FileChannel channel, final Charset charset, final int interval)
+      throws IOException {
+    final long size = channel.size();
+    final int width = fixedWidth(charset);
+    if (width == 1) {
+      return create(channel, charset, size, interval, 1, 0, false);
+    } else if (width == 2) {
+      boolean le = charset.equals(StandardCharsets.UTF_16LE);
+      long bom = 0;
+      if (charset.equals(StandardCharsets.UTF_16) && size >= 2) {
+        final ByteBuffer buf = ByteBuffer.allocate(2);
+        readFully(channel, buf, 0);
+        final int b0 = buf.get(0) & 0xFF, b1 = buf.get(1) & 0xFF;
+        if (b0 == 0xFE && b1 == 0xFF) {
+          bom = 2;
+        } else if (b0 == 0xFF && b1 == 0xFE) {
+          bom = 2;
+          le = true;
+        }
+      }
+      return create(channel, charset, (size - bom) / 2, interval, 2, bom, le);
+    }
+    if (isUtf32(charset)) {
+      final String name = charset.name().toUpperCase(Locale.ROOT);
+      final boolean be = name.contains("BE");
+      boolean le = name.contains("LE");
+      long bom = 0;
+      if (size >= 4) {
+        final ByteBuffer buf = ByteBuffer.allocate(4);
+        readFully(channel, buf, 0);
+        final int bo = buf.getInt(0);
+        // UTF-32 uses the byte order mark. The others only skip a matching one.
+        if (bo == 0x0000FEFF && !le) {
+          bom = 4;
+        } else if (bo == 0xFFFE0000 && !be) {
+          bom = 4;
+          le = true;
+        }
+      }
+      return scan(channel, charset, le ? UTF_32LE : UTF_32BE, bom, interval);
+    }
+    return scan(channel, charset, charset, 0, interval);
+  }
+
+  private static StringWrapper create(final FileChannel channel, final Charset charset, final long len,
+      final int interval, final int width, final long offset, final boolean le) throws IOException {
+    if (0 == len)
+      return EmptyWrapper.INSTANCE;
+    if (len > Integer.MAX_VALUE)
+      throw new IOException("File too long.");
+    return new CharsetFileWrapper(channel, charset, charset, (int) len, interval, width, offset, le, null, null);
+  }
+
+  /** Returns the number of bytes per char, or 0 for variable width charsets. */
+  private static int fixedWidth(final Charset charset) {
+    if (charset.equals(StandardCharsets.ISO_8859_1) || charset.equals(StandardCharsets.US_ASCII))
+      return 1;
+    if (charset.equals(StandardCharsets.UTF_16) || charset.equals(StandardCharsets.UTF_16BE)
+        || charset.equals(StandardCharsets.UTF_16LE))
+      return 2;
+    return 0;
+  }
+
+  private static boolean isUtf32(final Charset charset) {
+    final String name = charset.name().toUpperCase(Locale.ROOT);
+    return name.equals("UTF-32") || name.equals("UTF-32BE") || name.equals("UTF-32LE")
+        || name.equals("X-UTF-32BE-BOM") || name.equals("X-UTF-32LE-BOM");
+  }
+
+  /**
+   * Checks if the charset needs a state, that is only known after decoding
+   * all bytes before a checkpoint. Such charsets switch between character sets
+   * by escape or shift sequences.
+   */
+  private static boolean isStateful(final Charset charset) {
+    final String name = charset.name().toUpperCase(Locale.ROOT);
+    return name.contains("2022") || name.contains("JISAUTODETECT") || name.equals("X-UTF-16LE-BOM")
+        || STATEFUL_EBCDIC.contains(name);
+  }
+
+  private static CharsetDecoder decoder(final Charset charset) {
+    if (charset == UTF_32BE || charset == UTF_32LE)
+      return new Utf32Decoder(charset);
+    return charset.newDecoder()//
+        .onMalformedInput(CodingErrorAction.REPLACE)//
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  }
+
+  /**
+   * Decodes UTF-32 in one byte order. A byte order mark is decoded like any
+   * other character, so each block can be decoded on its own. The decoders of
+   * the JDK drop U+FEFF at the start of each block.
+   */
+  private static final class Utf32Decoder extends CharsetDecoder {
+    private final boolean littleEndian;
+
+    Utf32Decoder(final Charset charset) {
+      super(charset, 0.25f, 1f);
+      this.littleEndian = charset == UTF_32LE;
+      this.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    protected CoderResult decodeLoop(final ByteBuffer in, final CharBuffer out) {
+      while (in.remaining() >= 4) {
+        final int p = in.position();
+        final int b0 = in.get(p) & 0xFF, b1 = in.get(p + 1) & 0xFF, b2 = in.get(p + 2) & 0xFF,
+            b3 = in.get(p + 3) & 0xFF;
+        final int cp = this.littleEndian ? b3 << 24 | b2 << 16 | b1 << 8 | b0 : b0 << 24 | b1 << 16 | b2 << 8 | b3;
+        if (!Character.isValidCodePoint(cp) || cp >= 0xD800 && cp <= 0xDFFF)
+          return CoderResult.malformedForLength(4);
+        if (out.remaining() < Character.charCount(cp))
+          return CoderResult.OVERFLOW;
+        if (cp < 0x10000) {
+          out.put((char) cp);
+        } else {
+          out.put(Character.highSurrogate(cp));
+          out.put(Character.lowSurrogate(cp));
+        }
+        in.position(p + 4);
+      }
+      return CoderResult.UNDERFLOW;
+    }
+  }
+
+  /**
+   * Decodes the whole file once to build the index.
+   *
+   * @param charset
+   *          the charset of the file
+   * @param decoding
+   *          the charset used to decode the blocks
+   * @param offset
+   *          byte offset of the first block
+   */
+  private static StringWrapper scan(final FileChannel channel, final Charset charset, final Charset decoding,
+      final long offset, final int interval) throws IOException {
+    final CharsetDecoder decoder = decoder(decoding);
+    final ByteBuffer in = ByteBuffer.allocate(Math.max(1 << 16, interval * 8));
+    in.flip();
+    final CharBuffer out = CharBuffer.allocate(interval);
+    int[] chars = new int[64];
+    long[] bytes = new long[64];
+    bytes[0] = offset;
+    int n = 1; // checkpoint 0 is at char 0
+    long count = 0;
+    long inStart = offset; // file offset of in[0]
+    long readPos = offset;
+    boolean eof = false;
+    for (;;) {
+      final CoderResult cr = decoder.decode(in, out, eof);
+      if (cr.isOverflow()) {
+        count += out.position();
+        out.clear();
+        if (count > Integer.MAX_VALUE)
+          throw new IOException("File too long.");
+        if (n == chars.length) {
+          chars = Arrays.copyOf(chars, n * 2);
+          bytes = Arrays.copyOf(bytes, n * 2);
+        }
+        chars[n] = (int) count;
+        bytes[n] = inStart + in.position();
+        n++;
+        continue;
+      }
+      if (eof)
+        break;
+      inStart += in.position();
+      in.compact();
+      final int r = channel.read(in, readPos);
+      if (r < 0)
+        eof = true;
+      else
+        readPos += r;
+      in.flip();
+    }
+    while (decoder.flush(out).isOverflow()) {
+      // Can only happen if the interval is tiny. The flushed chars simply
+      // belong to the last block.
+      count += out.position();
+      out.clear();
+    }
+    count += out.position();
+
+    if (0 == count)
+      return EmptyWrapper.INSTANCE;
+    if (count > Integer.MAX_VALUE)
+      throw new IOException("File too long.");
+    // The last entry is the end of the file:
+    if (chars[n - 1] == count) {
+      n--;
+    } else if (n == chars.length) {
+      chars = Arrays.copyOf(chars, n + 1);
+      bytes = Arrays.copyOf(bytes, n + 1);
+    }
+    chars[n] = (int) count;
+    bytes[n] = readPos;
+    return new CharsetFileWrapper(channel, charset, decoding, (int) count, interval, 0, offset, false, //
+        Arrays.copyOf(chars, n + 1), Arrays.copyOf(bytes, n + 1));
+  }
+
+  /** Positional read that does not alter the position of the channel. */
+  private static void readFully(final FileChannel channel, final ByteBuffer buf, long pos) throws IOException {
+    while (buf.hasRemaining()) {
+      final int r = channel.read(buf, pos);
+      if (r < 0)
+        throw new IOException("Unexpected end of file at " + pos);
+      pos += r;
+    }
+    buf.flip();
+  }
+
+  /** The charset used to decode the file. */
+  public Charset getCharset() {
+    return this.charset;
+  }
+
+  /** Number of checkpoints in the index, or 0 for fixed-width charsets. */
+  int getCheckpoints() {
+    return this.checkpointChars == null ? 0 : this.checkpointChars.length - 1;
+  }
+
+  @Override
+  public int length() {
+    return this.length;
+  }
+
+  @Override
+  public char charAt(final int index) {
+    if (index < 0 || index >= this.length)
+      throw new StringIndexOutOfBoundsException(index);
+    final Block b = this.block(index);
+    return b.chars[index - b.start];
+  }
+
+  /** Returns the block that contains the given index. */
+  private Block block(final int index) {
+    final Block b = this.last;
+    if (b != null && index >= b.start && index < b.start + b.chars.length)
+      return b;
+    try {
+      return this.last = this.decode(index);
+    } catch (final IOException e) {
+      throw new RuntimeException("Can't get char at " + index, e);
+    }
+  }
+
+  @Override
+  long retained(final boolean bytes) {
+    final Block b = this.last;
+    final long chars = b == null ? 0 : b.chars.length;
+    return bytes ? 2 * chars : chars;
+  }
+
+  private Block decode(final int index) throws IOException {
+    if (this.width > 0) {
+      final int start = index - index % this.interval;
+      final int len = Math.min(this.interval, this.length - start);
+      final ByteBuffer buf = ByteBuffer.allocate(len * this.width);
+      readFully(this.channel, buf, this.offset + (long) start * this.width);
+      final char[] chars = new char[len];
+      if (this.width == 1) {
+        final boolean ascii = this.charset.equals(StandardCharsets.US_ASCII);
+        for (int i = 0; i < len; i++) {
+          final byte x = buf.get(i);
+          chars[i] = ascii && x < 0 ? '\uFFFD' : (char) (x & 0xFF);
+        }
+      } else {
+        for (int i = 0; i < len; i++) {
+          final int hi = buf.get(2 * i) & 0xFF, lo = buf.get(2 * i + 1) & 0xFF;
+          chars[i] = this.littleEndian ? (char) (lo << 8 | hi) : (char) (hi << 8 | lo);
+        }
+      }
+      return new Block(start, chars);
+    }
+
+    int k = Arrays.binarySearch(this.checkpointChars, index);
+    if (k < 0)
+      k = -k - 2;
+    final int start = this.checkpointChars[k];
+    final long from = this.checkpointBytes[k];
+    final ByteBuffer buf = ByteBuffer.allocate((int) (this.checkpointBytes[k + 1] - from));
+    readFully(this.channel, buf, from);
+    final CharBuffer out = CharBuffer.allocate(this.checkpointChars[k + 1] - start);
+    final CharsetDecoder decoder = decoder(this.decoding);
+    decoder.decode(buf, out, true);
+    decoder.flush(out);
+    return new Block(start, out.array());
+  }
+
+  @Override
+  public int indexOf(final char chr, final int fromIndex) {
+    for (int i = Math.max(0, fromIndex); i < this.length;) {
+      final Block b = this.block(i);
+      final char[] chars = b.chars;
+      for (int j = i - b.start; j < chars.length; j++) {
+        if (chars[j] == chr)
+          return b.start + j;
+      }
+      i = b.start + chars.length;
+    }
+    return -1;
+  }
+
+  @Override
+  public void getChars(int srcBegin, final int srcEnd, final char[] dst, int dstBegin) {
+    StringUtils.checkRange(srcBegin, srcEnd, this.length);
+    while (srcBegin < srcEnd) {
+      final Block b = this.block(srcBegin);
+      final int offset = srcBegin - b.start;
+      final int n = Math.min(b.chars.length - offset, srcEnd - srcBegin);
+      System.arraycopy(b.chars, offset, dst, dstBegin, n);
+      srcBegin += n;
+      dstBegin += n;
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package ch.claude_martin.stringwrappers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Builds a {@link StringWrapper} that uses one byte per char if possible. The
+ * chars are stored as Latin-1 until the first char that is greater than
+ * 0xFF is appended. Then the content is copied to a <code>char[]</code> once
+ * and all further chars use two bytes. This is like the compact strings of
+ * newer JDKs.
+ *
+ * <p>
+ * {@link #build()} returns a {@link ByteArrayWrapper} or a
+ * {@link CharArrayWrapper}. The builder can still be used afterwards, but it
+ * will then copy its array on the next append.
+ *
+ * <p>
+ * This is not thread-safe.
+ *
+ * @see StringWrapper#detach()
+ */
+public final class CompactBuilder implements Appendable {
+  /** Number of chars that are copied at once while the content is Latin-1. */
+  private static final int BLOCK = 512;
+
+  /** The content as Latin-1. Null after the content was inflated. */
+  private byte[]           bytes;
+  /** The content as UTF-16. Null until the first wide char is appended. */
+  private char[]           chars;
+  private int              count;
+  /** The array was passed to a wrapper and must not be modified. */
+  private boolean          shared;
+  private char[]           tmp;
+
+  public CompactBuilder() {
+    this(16);
+  }
+
+  /** Creates a builder for the given number of chars. */
+  public CompactBuilder(final int capacity) {
+    if (capacity < 0)
+      throw new IllegalArgumentException("capacity = " + capacity);
+    this.bytes = new byte[capacity];
+  }
+
+  /** Number of chars. */
+  public int length() {
+    return this.count;
+  }
+
+  /** Checks if all chars so far are Latin-1, so that one byte per char is used. */
+  public boolean isLatin1() {
+    return this.chars == null;
+  }
+
+  /** Makes room for at least <i>n</i> more chars. */
+  private void ensure(final int n) {
+    final int min = this.count + n;
+    if (min < 0)
+      throw new OutOfMemoryError("Too many chars");
+    final int length = this.chars == null ? this.bytes.length : this.chars.length;
+    if (min <= length && !this.shared)
+      return;
+    int capacity = length;
+    if (min > length)
+      capacity = Math.max(min, length < Integer.MAX_VALUE >> 1 ? 2 * length + 2 : Integer.MAX_VALUE - 8);
+    if (this.chars == null)
+      this.bytes = Arrays.copyOf(this.bytes, capacity);
+    else
+      this.chars = Arrays.copyOf(this.chars, capacity);
+    this.shared = false;
+  }
+
+  /** Copies the Latin-1 content to a new <code>char[]</code>. */
+  private void inflate(final int capacity) {
+    final char[] c = new char[Math.max(capacity, this.bytes.length)];
+    ArrayKernels.inflate(this.bytes, 0, c, 0, this.count);
+    this.chars = c;
+    this.bytes = null;
+    this.shared = false;
+  }
+
+  @Override
+  public CompactBuilder append(final char c) {
+    this.ensure(1);
+    if (this.chars == null) {
+      if (c <= 0xFF) {
+        this.bytes[this.count++] = (byte) c;
+        return this;
+      }
+      this.inflate(this.count + 1);
+    }
+    this.chars[this.count++] = c;
+    return this;
+  }
+
+  /** Appends the sequence. If it is null then "null" is appended, as required by {@link Appendable}. */
+  @Override
+  public CompactBuilder append(final CharSequence csq) {
+    final CharSequence s = csq == null ? "null" : csq;
+    return this.append(s, 0, s.length());
+  }
+
+  /**
+   * Appends the chars from <i>begin</i> to <i>end</i>. While the content is
+   * Latin-1 they are copied in blocks and each block is scanned once. If the
+   * sequence is null then the chars of "null" are appended.
+   */
+  @Override
+  public CompactBuilder append(final CharSequence csq, final int begin, final int end) {
+    final CharSequence s = csq == null ? "null" : csq;
+    StringUtils.checkRange(begin, end, s.length());
+    this.ensure(end - begin);
+    int pos = begin;
+    if (this.chars == null) {
+      if (this.tmp == null)
+        this.tmp = new char[BLOCK];
+      final char[] tmp = this.tmp;
+      while (pos < end) {
+        final int n = Math.min(BLOCK, end - pos);
+        StringUtils.getChars(s, pos, pos + n, tmp, 0);
+        final int i = ArrayKernels.indexOfNonLatin1(tmp, 0, n);
+        final int latin1 = i < 0 ? n : i;
+        ArrayKernels.narrow(tmp, 0, this.bytes, this.count, latin1);
+        this.count += latin1;
+        pos += latin1;
+        if (i >= 0) {
+          // The first wide char: all further chars are copied to the char[].
+          this.inflate(this.bytes.length);
+          break;
+        }
+      }
+    }
+    if (pos < end) {
+      StringUtils.getChars(s, pos, end, this.chars, this.count);
+      this.count += end - pos;
+    }
+    return this;
+  }
+
+  /** Removes all chars. The capacity is kept, unless the array is shared. */
+  public void clear() {
+    this.count = 0;
+    if (this.shared) {
+      this.bytes = new byte[16];
+      this.chars = null;
+      this.shared = false;
+    }
+  }
+
+  /**
+   * Returns a wrapper of the content. It is a {@link ByteArrayWrapper} if all
+   * chars are Latin-1, otherwise a {@link CharArrayWrapper}. The array is only
+   * copied if it is larger than the content.
+   */
+  public StringWrapper build() {
+    if (this.count == 0)
+      return StringUtils.empty();
+    final Object array = this.array();
+    if (array instanceof byte[])
+      return new ByteArrayWrapper((byte[]) array);
+    return new CharArrayWrapper((char[]) array);
+  }
+
+  /**
+   * Returns the content as a <code>byte[]</code> (Latin-1) or as a
+   * <code>char[]</code>, of the exact length. The array is shared.
+   */
+  Object array() {
+    final int n = this.count;
+    this.shared = true;
+    if (this.chars == null) {
+      if (this.bytes.length != n)
+        this.bytes = Arrays.copyOf(this.bytes, n);
+      return this.bytes;
+    }
+    if (this.chars.length != n)
+      this.chars = Arrays.copyOf(this.chars, n);
+    return this.chars;
+  }
+
+  @Override
+  public String toString() {
+    if (this.chars == null)
+      return new String(this.bytes, 0, this.count, StandardCharsets.ISO_8859_1);
+    return new String(this.chars, 0, this.count);
+  }
+}
@@ -0,0 +1,101 @@
+package ch.claude_martin.stringwrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Composition of multiple {@link CharMapper}s. This is used to fuse nested
+ * mapping wrappers into one single wrapper. Adjacent stages are simplified:
+ * {@link CharMapper#ROT13} cancels itself, and repeated case conversions are
+ * only applied once. If all stages are lookup tables, the composition is
+ * compiled into one table.
+ *
+ * @see CharMapper#compose(CharMapper, CharMapper)
+ */
+final class ComposedMapper implements CharMapper {
+  private final CharMapper[] stages;
+
+  private ComposedMapper(final CharMapper[] stages) {
+    this.stages = stages;
+  }
+
+  static CharMapper compose(final CharMapper first, final CharMapper second) {
+    final List<CharMapper> list = new ArrayList<>();
+    add(list, first);
+    add(list, second);
+    switch (list.size()) {
+      case 0:
+        return CharMapper.IDENTITY;
+      case 1:
+        return list.get(0);
+      default:
+        final ComposedMapper composed = new ComposedMapper(list.toArray(new CharMapper[list.size()]));
+        for (final CharMapper m : composed.stages)
+          if (!(m instanceof LookupTableMapper))
+            return composed;
+        return LookupTableMapper.of(composed);
+    }
+  }
+
+  private static void add(final List<CharMapper> list, final CharMapper mapper) {
+    if (mapper instanceof LookupTableMapper && ((LookupTableMapper) mapper).getMapper() instanceof ComposedMapper) {
+      add(list, ((LookupTableMapper) mapper).getMapper());
+      return;
+    }
+    if (mapper instanceof ComposedMapper) {
+      for (final CharMapper m : ((ComposedMapper) mapper).stages)
+        add(list, m);
+      return;
+    }
+    if (mapper == CharMapper.IDENTITY)
+      return;
+    if (!list.isEmpty()) {
+      final CharMapper last = list.get(list.size() - 1);
+      if (last == mapper && isIdempotent(mapper))
+        return;
+      if (last == mapper && isInvolution(mapper)) {
+        list.remove(list.size() - 1);
+        return;
+      }
+    }
+    list.add(mapper);
+  }
+
+  private static boolean isIdempotent(final CharMapper mapper) {
+    return mapper == CharMapper.TO_UPPER_CASE || mapper == CharMapper.TO_LOWER_CASE;
+  }
+
+  private static boolean isInvolution(final CharMapper mapper) {
+    return mapper == CharMapper.ROT13;
+  }
+
+  /**
+   * Checks if the mapper never maps a surrogate to anything else and no other
+   * character to a surrogate. Such a mapping can be swapped with
+   * {@link Reversed}.
+   */
+  static boolean preservesSurrogates(final CharMapper mapper) {
+    if (mapper instanceof LookupTableMapper && ((LookupTableMapper) mapper).getMapper() instanceof ComposedMapper)
+      return preservesSurrogates(((LookupTableMapper) mapper).getMapper());
+    if (mapper instanceof ComposedMapper) {
+      for (final CharMapper m : ((ComposedMapper) mapper).stages)
+        if (!preservesSurrogates(m))
+          return false;
+      return true;
+    }
+    return mapper == CharMapper.IDENTITY || mapper == CharMapper.ROT13 || isIdempotent(mapper);
+  }
+
+  @Override
+  public char map(char c) {
+    for (final CharMapper m : this.stages)
+      c = m.map(c);
+    return c;
+  }
+
+  @Override
+  public String toString() {
+    return "ComposedMapper" + Arrays.toString(this.stages);
+  }
+}
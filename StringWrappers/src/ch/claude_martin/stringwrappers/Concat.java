@@ -2,29 +2,47 @@ package ch.claude_martin.stringwrappers;
 
 import static java.util.Objects.requireNonNull;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.NoSuchElementException;
 
 /**
  * Concatenation of multiple strings. This only supports strings that are
  * immutable or are not altered in length.
+ *
+ * <p>
+ * This is implemented as a balanced rope. Each instance is an inner node with
+ * two children. The children are either other {@link Concat} nodes or any
+ * other {@link CharSequence} (the leaves). The tree is kept balanced like an
+ * AVL tree, so that {@link #charAt(int)} and {@link #concat(CharSequence...)}
+ * only need <i>O(log k)</i> steps for <i>k</i> leaves. Concatenation never
+ * copies the existing tree, all unchanged nodes are shared.
  */
 public final class Concat extends AbstractStringWrapper {
-  /** List of character sequences. */
-  private final List<CharSequence> list;
+  /** The first part. */
+  private final CharSequence left;
+  /** The second part. */
+  private final CharSequence right;
+  /** Length of the first part. */
+  private final int          leftLength;
   /** Total length - the sum of all characters. */
-  private final int                length;
-
-  private Concat(final List<CharSequence> list, final long length) {
-    this.list = list;
-    if (list.isEmpty())
-      throw new AssertionError();
-    assert length > 0;
-    if (length > Integer.MAX_VALUE)
+  private final int          length;
+  /** Height of this node. Leaves have height 0. */
+  private final int          depth;
+  /** True if no part can ever change. */
+  private final boolean      immutable;
+
+  private Concat(final CharSequence left, final CharSequence right) {
+    this.left = left;
+    this.right = right;
+    this.leftLength = left.length();
+    final long len = (long) this.leftLength + right.length();
+    assert this.leftLength > 0 && len > this.leftLength;
+    if (len > Integer.MAX_VALUE)
       throw new RuntimeException("Concatenated Strings are longer than Integer.MAX_VALUE");
-    this.length = (int) length;
+    this.length = (int) len;
+    this.depth = 1 + Math.max(depth(left), depth(right));
+    this.immutable = StringUtils.isImmutable(left) && StringUtils.isImmutable(right);
   }
 
   public static StringWrapper of(final CharSequence string) {
@@ -39,48 +57,32 @@ public final class Concat extends AbstractStringWrapper {
   public static StringWrapper of(final CharSequence a, final CharSequence b) {
     requireNonNull(a, "a");
     requireNonNull(b, "b");
-    final long len = a.length() + b.length();
-    if (len == 0)
-      return StringUtils.empty();
-    final List<CharSequence> _list = new ArrayList<>(2);
-    if (a.length() > 0)
-      _list.add(a);
-    if (b.length() > 0)
-      _list.add(b);
-    return new Concat(_list, len);
+    if (a.length() == 0)
+      return of(b);
+    if (b.length() == 0)
+      return of(a);
+    return (StringWrapper) join(a, b);
   }
 
   public static StringWrapper of(final CharSequence... strings) {
     requireNonNull(strings, "strings");
-    final List<CharSequence> _list = new ArrayList<>(strings.length);
-    long len = 0;
-    for (final CharSequence s : strings) {
-      if (s.length() == 0)
-        continue;
-      _list.add(s);
-      len += s.length();
-    }
-    if (len == 0)
+    for (final CharSequence s : strings)
+      requireNonNull(s, "strings[i]");
+    final CharSequence result = build(strings, 0, strings.length);
+    if (result == null)
       return StringUtils.empty();
-    return new Concat(_list, len);
+    return of(result);
   }
 
   public static StringWrapper of(final CharSequence first, final CharSequence... more) {
     requireNonNull(first, "first");
     requireNonNull(more, "more");
-    final List<CharSequence> _list = new ArrayList<>(more.length + 1);
-    long len = first.length();
-    if (len > 0)
-      _list.add(first);
-    for (final CharSequence s : more) {
-      if (s.length() == 0)
-        continue;
-      _list.add(s);
-      len += s.length();
-    }
-    if (len == 0)
-      return StringUtils.empty();
-    return new Concat(_list, len);
+    for (final CharSequence s : more)
+      requireNonNull(s, "more[i]");
+    final CharSequence rest = build(more, 0, more.length);
+    if (rest == null)
+      return of(first);
+    return of(first, rest);
   }
 
   public static StringWrapper repeat(final CharSequence string, final int count) {
@@ -92,19 +94,128 @@ public final class Concat extends AbstractStringWrapper {
       return NullWrapper.of(string);
     else if (len == 0)
       return StringUtils.empty();
-    final List<CharSequence> _list = new ArrayList<>(count);
-    for (int i = 0; i < count; i++) {
-      _list.add(string);
+    if (len > Integer.MAX_VALUE)
+      throw new RuntimeException("Concatenated Strings are longer than Integer.MAX_VALUE");
+    // Binary exponentiation. All nodes of the same power are shared.
+    CharSequence result = null;
+    CharSequence power = string;
+    for (int n = count;; n >>>= 1) {
+      if ((n & 1) != 0)
+        result = result == null ? power : join(result, power);
+      if (n <= 1)
+        break;
+      power = join(power, power);
     }
-    return new Concat(_list, len);
+    return (StringWrapper) result;
+  }
+
+  /**
+   * Builds a balanced tree of the given sequences. Empty sequences are
+   * skipped.
+   *
+   * @return the root or <code>null</code>, if all sequences are empty.
+   */
+  private static CharSequence build(final CharSequence[] strings, final int from, final int to) {
+    if (to - from == 1)
+      return strings[from].length() == 0 ? null : strings[from];
+    if (to <= from)
+      return null;
+    final int mid = (from + to) >>> 1;
+    final CharSequence a = build(strings, from, mid);
+    final CharSequence b = build(strings, mid, to);
+    if (a == null)
+      return b;
+    if (b == null)
+      return a;
+    return join(a, b);
+  }
+
+  /** Height of a node. Anything that is not a {@link Concat} is a leaf. */
+  static int depth(final CharSequence s) {
+    return s instanceof Concat ? ((Concat) s).depth : 0;
+  }
+
+  /**
+   * Joins two non-empty trees and keeps the result balanced. Only the nodes
+   * along one spine are created anew, everything else is shared.
+   */
+  private static CharSequence join(final CharSequence a, final CharSequence b) {
+    final int da = depth(a), db = depth(b);
+    if (da > db + 1) {
+      final Concat c = (Concat) a;
+      return balance(c.left, join(c.right, b));
+    }
+    if (db > da + 1) {
+      final Concat c = (Concat) b;
+      return balance(join(a, c.left), c.right);
+    }
+    return new Concat(a, b);
+  }
+
+  /** Creates a new node and rotates if the heights differ by more than one. */
+  private static Concat balance(final CharSequence l, final CharSequence r) {
+    final int dl = depth(l), dr = depth(r);
+    if (dr > dl + 1) {
+      final Concat c = (Concat) r;
+      if (depth(c.left) > depth(c.right)) {
+        final Concat cl = (Concat) c.left;
+        return new Concat(new Concat(l, cl.left), new Concat(cl.right, c.right));
+      }
+      return new Concat(new Concat(l, c.left), c.right);
+    }
+    if (dl > dr + 1) {
+      final Concat c = (Concat) l;
+      if (depth(c.right) > depth(c.left)) {
+        final Concat cr = (Concat) c.right;
+        return new Concat(new Concat(c.left, cr.left), new Concat(cr.right, r));
+      }
+      return new Concat(c.left, new Concat(c.right, r));
+    }
+    return new Concat(l, r);
+  }
+
+  /**
+   * Finds an index to split the range from <i>begin</i> to <i>end</i>. This is
+   * the boundary of two leaves if there is one near the middle of the range.
+   * Otherwise it is the middle.
+   */
+  int splitPoint(final int begin, final int end) {
+    final int mid = (begin + end) >>> 1;
+    final int tolerance = (end - begin) / 4;
+    int best = mid;
+    int bestDistance = Integer.MAX_VALUE;
+    CharSequence s = this;
+    int offset = 0;
+    while (s instanceof Concat) {
+      final Concat c = (Concat) s;
+      final int boundary = offset + c.leftLength;
+      final int distance = Math.abs(boundary - mid);
+      if (distance <= tolerance && distance < bestDistance) {
+        best = boundary;
+        bestDistance = distance;
+      }
+      if (mid < boundary) {
+        s = c.left;
+      } else {
+        offset = boundary;
+        s = c.right;
+      }
+    }
+    return best;
+  }
+
+  /** The last leaf of this tree. */
+  private CharSequence last() {
+    CharSequence s = this;
+    while (s instanceof Concat)
+      s = ((Concat) s).right;
+    return s;
   }
 
   @Override
   public boolean endsWith(final CharSequence string) {
     requireNonNull(string, "string");
-    final CharSequence last = this.list.get(this.list.size() - 1);
-    if (last.length() == 0)
-      return true;
+    final CharSequence last = this.last();
     if (last.length() >= string.length())
       return NullWrapper.of(last).endsWith(string);
     return super.endsWith(string);
@@ -115,59 +226,182 @@ public final class Concat extends AbstractStringWrapper {
     return this.length;
   }
 
+  @Override
+  long retained(final boolean bytes) {
+    return StringUtils.retained(this.left, bytes) + StringUtils.retained(this.right, bytes);
+  }
+
+  @Override
+  boolean isImmutable() {
+    return this.immutable;
+  }
+
+  @Override
+  CharPresence computePresence() {
+    return CharPresence.of(this.left).union(CharPresence.of(this.right));
+  }
+
+  /** Until the summary is calculated, the parts are asked. */
+  @Override
+  protected boolean canContain(final char chr) {
+    if (this.cachedPresence() != null)
+      return super.canContain(chr);
+    return canContain(this.left, chr) || canContain(this.right, chr);
+  }
+
+  private static boolean canContain(final CharSequence s, final char chr) {
+    return !(s instanceof AbstractStringWrapper) || ((AbstractStringWrapper) s).canContain(chr);
+  }
+
+  /**
+   * The hash is combined from the hashes of both parts. Those are cached by the
+   * parts, so a new concatenation of existing parts does not rescan them.
+   */
+  @Override
+  int computeHash() {
+    return StringUtils.hashCode(this.left) * StringUtils.pow31(this.length - this.leftLength)
+        + StringUtils.hashCode(this.right);
+  }
+
   @Override
   public char charAt(int index) {
     if ((index < 0) || (index >= this.length)) {
       throw new StringIndexOutOfBoundsException(index);
     }
 
-    for (final CharSequence s : this.list) {
-      if (index >= s.length()) {
-        index -= s.length();
+    Concat c = this;
+    for (;;) {
+      final CharSequence s;
+      if (index < c.leftLength) {
+        s = c.left;
       } else {
+        index -= c.leftLength;
+        s = c.right;
+      }
+      if (!(s instanceof Concat))
         return s.charAt(index);
+      c = (Concat) s;
+    }
+  }
+
+  @Override
+  public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    StringUtils.checkRange(srcBegin, srcEnd, this.length);
+    getChars(this, srcBegin, srcEnd, dst, dstBegin);
+  }
+
+  /** Copies the leaves that overlap the range. */
+  private static void getChars(CharSequence s, int srcBegin, int srcEnd, final char[] dst, int dstBegin) {
+    while (s instanceof Concat) {
+      final Concat c = (Concat) s;
+      if (srcEnd <= c.leftLength) {
+        s = c.left;
+        continue;
+      }
+      if (srcBegin < c.leftLength) {
+        getChars(c.left, srcBegin, c.leftLength, dst, dstBegin);
+        dstBegin += c.leftLength - srcBegin;
+        srcBegin = c.leftLength;
       }
+      srcBegin -= c.leftLength;
+      srcEnd -= c.leftLength;
+      s = c.right;
     }
+    if (srcBegin < srcEnd)
+      StringUtils.getChars(s, srcBegin, srcEnd, dst, dstBegin);
+  }
 
-    throw new RuntimeException("char not found");
+  /**
+   * Creates a substring that only contains the parts that overlap the range.
+   * Parts that are fully included are shared, only the parts at the edges are
+   * wrapped as {@link Substring}s.
+   */
+  @Override
+  public StringWrapper substring(final int begin, final int end) {
+    StringUtils.checkRange(begin, end, this.length);
+    if (begin == end)
+      return EmptyWrapper.INSTANCE;
+    return of(slice(this, begin, end));
+  }
+
+  private static CharSequence slice(final CharSequence s, final int begin, final int end) {
+    if (begin == 0 && end == s.length())
+      return s;
+    if (!(s instanceof Concat))
+      return Substring.of(s, begin, end);
+    final Concat c = (Concat) s;
+    if (end <= c.leftLength)
+      return slice(c.left, begin, end);
+    if (begin >= c.leftLength)
+      return slice(c.right, begin - c.leftLength, end - c.leftLength);
+    return join(slice(c.left, begin, c.leftLength), slice(c.right, 0, end - c.leftLength));
   }
 
   @Override
   public StringWrapper concat(final CharSequence... s) {
     requireNonNull(s, "s");
 
-    if (s.length == 0)
-      return this;
-
-    final List<CharSequence> _list = new ArrayList<>(this.list.size() + s.length);
-    for (final CharSequence seq : this.list) {
-      _list.add(seq);
-    }
-    long len = this.length;
+    CharSequence result = this;
     for (final CharSequence seq : s) {
       if (seq.length() == 0)
         continue;
-      _list.add(seq);
-      len += seq.length();
+      result = join(result, seq);
     }
-    if (len == 0)
-      return this;
-    return new Concat(_list, this.length + len);
+    return (StringWrapper) result;
   }
 
   @Override
   public StringWrapper map(final CharMapper mapper) {
-    final List<CharSequence> l = new ArrayList<>(this.list.size());
-    for (final CharSequence s : this.list) {
-      l.add(CharWrapper.of(s, mapper));
+    return (StringWrapper) map(this, mapper);
+  }
+
+  /** Maps all leaves and keeps the shape of the tree. */
+  private static CharSequence map(final CharSequence s, final CharMapper mapper) {
+    if (s instanceof Concat) {
+      final Concat c = (Concat) s;
+      return new Concat(map(c.left, mapper), map(c.right, mapper));
     }
-    return new Concat(l, this.length);
+    return CharWrapper.of(s, mapper);
   }
 
   @Override
   public int indexOf(final char chr, final int fromIndex) {
-    // TODO : optimize using iterator()
-    return super.indexOf(chr, fromIndex);
+    if (fromIndex >= this.length)
+      return -1;
+    if (!this.canContain(chr))
+      return -1;
+    final int i = indexOf(this, chr, Math.max(0, fromIndex));
+    if (i < 0 && fromIndex <= 0)
+      this.searchedAll();
+    return i;
+  }
+
+  /**
+   * Searches only the leaves that overlap the range starting at fromIndex.
+   * Parts that can't contain the character are skipped.
+   */
+  private static int indexOf(final CharSequence s, final char chr, final int fromIndex) {
+    if (s instanceof Concat) {
+      final Concat c = (Concat) s;
+      if (!c.canContain(chr))
+        return -1;
+      if (fromIndex < c.leftLength) {
+        final int i = indexOf(c.left, chr, fromIndex);
+        if (i >= 0)
+          return i;
+      }
+      final int i = indexOf(c.right, chr, Math.max(0, fromIndex - c.leftLength));
+      return i < 0 ? -1 : c.leftLength + i;
+    }
+    if (s instanceof StringWrapper)
+      return ((StringWrapper) s).indexOf(chr, fromIndex);
+    if (s instanceof String)
+      return ((String) s).indexOf(chr, fromIndex);
+    final int len = s.length();
+    for (int i = fromIndex; i < len; i++)
+      if (s.charAt(i) == chr)
+        return i;
+    return -1;
   }
 
   @Override
@@ -179,32 +413,34 @@ public final class Concat extends AbstractStringWrapper {
   @Override
   public CharIterator iterator() {
     return new CharIterator() {
-      private final Iterator<CharSequence> itr = Concat.this.list.iterator();
-      private int                          i   = 0;
-      private int                          x   = 0;
-      private CharSequence                 s   = this.itr.next();
+      /** Right siblings that still have to be visited. */
+      private final Deque<CharSequence> stack = new ArrayDeque<>(Concat.this.depth);
+      private CharSequence              s     = this.descend(Concat.this);
+      private int                       x     = 0;
+
+      /** Finds the first leaf of the given node. */
+      private CharSequence descend(CharSequence node) {
+        while (node instanceof Concat) {
+          this.stack.push(((Concat) node).right);
+          node = ((Concat) node).left;
+        }
+        return node;
+      }
 
       @Override
       public boolean hasNext() {
-        return this.i < Concat.this.length();
+        return this.x < this.s.length() || !this.stack.isEmpty();
       }
 
       @Override
       public char nextChar() {
-        if (!this.hasNext())
-          throw new NoSuchElementException();
         if (this.x >= this.s.length()) {
-          this.s = this.itr.next();
+          if (this.stack.isEmpty())
+            throw new NoSuchElementException();
+          this.s = this.descend(this.stack.pop());
           this.x = 0;
-        } else
-          this.x++;
-        this.i++;
-        return this.s.charAt(this.x);
-      }
-
-      @Override
-      public Character next() {
-        return this.nextChar();
+        }
+        return this.s.charAt(this.x++);
       }
     };
   }
@@ -0,0 +1,104 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Key for hash based collections that uses the content of a character sequence
+ * instead of its identity. The hash code is the same as the one of a
+ * {@link String} with the same content.
+ *
+ * <p>
+ * A key is equal to any other key with the same content. A key created by
+ * {@link #probe()} is also equal to any {@link CharSequence} with the same
+ * content. That is not symmetric, so a probe must never be stored in a
+ * collection. It allows to look up a map or set with {@link String} keys:
+ *
+ * <pre>
+ * final Map&lt;String, Token&gt; symbols = ...;
+ * final ContentKey probe = ContentKey.probe();
+ * final Token t = symbols.get(probe.set(Substring.of(line, begin, end)));
+ * </pre>
+ *
+ * {@link java.util.Map#get(Object)} and
+ * {@link java.util.Set#contains(Object)} compare the given key with the keys
+ * in the collection, so no string is created for the lookup.
+ *
+ * @see StringUtils#hashCode(CharSequence)
+ * @see StringUtils#equals(CharSequence, CharSequence)
+ */
+public final class ContentKey {
+  private final boolean mutable;
+  private CharSequence  sequence;
+  private int           hash;
+
+  private ContentKey(final CharSequence sequence, final boolean mutable) {
+    this.mutable = mutable;
+    this.sequence = sequence;
+    this.hash = StringUtils.hashCode(sequence);
+  }
+
+  /**
+   * Creates a key for the given sequence. The sequence must not be modified
+   * while the key is in use.
+   */
+  public static ContentKey of(final CharSequence sequence) {
+    requireNonNull(sequence, "sequence");
+    return new ContentKey(sequence, false);
+  }
+
+  /**
+   * Creates a reusable key for lookups. Use {@link #set(CharSequence)} before
+   * each lookup. Such a key must never be stored in a collection and it is not
+   * thread-safe.
+   */
+  public static ContentKey probe() {
+    return new ContentKey(EmptyWrapper.INSTANCE, true);
+  }
+
+  /**
+   * Sets the sequence of a key created by {@link #probe()}.
+   *
+   * @return this key
+   * @throws UnsupportedOperationException
+   *           if this key was not created by {@link #probe()}.
+   */
+  public ContentKey set(final CharSequence s) {
+    requireNonNull(s, "s");
+    if (!this.mutable)
+      throw new UnsupportedOperationException("This key is immutable.");
+    this.sequence = s;
+    this.hash = StringUtils.hashCode(s);
+    return this;
+  }
+
+  /** The sequence of this key. */
+  public CharSequence getSequence() {
+    return this.sequence;
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj)
+      return true;
+    if (obj instanceof ContentKey) {
+      final ContentKey other = (ContentKey) obj;
+      return this.hash == other.hash && StringUtils.equals(this.sequence, other.sequence);
+    }
+    // Only a probe is compared to other sequences, see class comment.
+    if (!this.mutable || !(obj instanceof CharSequence))
+      return false;
+    if (obj instanceof String && obj.hashCode() != this.hash)
+      return false;
+    return StringUtils.equals(this.sequence, (CharSequence) obj);
+  }
+
+  @Override
+  public String toString() {
+    return this.sequence.toString();
+  }
+}
@@ -3,11 +3,9 @@ package ch.claude_martin.stringwrappers;
 import static java.util.Objects.requireNonNull;
 
 import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.regex.Pattern;
 
 /**
  * Represents an empty string. This is a singleton because every empty string is
@@ -56,6 +54,11 @@ public enum EmptyWrapper implements StringWrapper {
     return this;
   }
 
+  @Override
+  public StringWrapper trim(final CharMatcher matcher) {
+    return this;
+  }
+
   @Override
   public StringWrapper concat(final CharSequence... s) {
     return Concat.of(s);
@@ -75,12 +78,12 @@ public enum EmptyWrapper implements StringWrapper {
 
   @Override
   public List<StringWrapper> split(final String regexp) {
-    return new ArrayList<>();
+    return Arrays.<StringWrapper> asList(this);
   }
 
   @Override
   public boolean matches(final String regex) {
-    return Pattern.matches(regex, "");
+    return PatternCache.get(regex).matcher("").matches();
   }
 
   @Override
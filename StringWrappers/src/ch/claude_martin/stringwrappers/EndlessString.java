@@ -2,9 +2,8 @@ package ch.claude_martin.stringwrappers;
 
 import static java.util.Objects.requireNonNull;
 
-import java.util.PrimitiveIterator;
 import java.util.Spliterator;
-import java.util.Spliterators;
+import java.util.function.IntConsumer;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
@@ -93,27 +92,46 @@ public class EndlessString extends AbstractStringWrapper {
     };
   }
 
-  PrimitiveIterator.OfInt intIterator() {
-    return new PrimitiveIterator.OfInt() {
-      int pos = 0;
+  /**
+   * Endless spliterator. Each split takes a batch of characters from the front,
+   * which can then be split again by index.
+   */
+  private final class EndlessSpliterator implements Spliterator.OfInt {
+    private int pos   = 0;
+    private int batch = 1 << 10;
+
+    @Override
+    public OfInt trySplit() {
+      final int lo = this.pos;
+      if (lo < 0 || lo > Integer.MAX_VALUE - this.batch)
+        return null;
+      this.pos += this.batch;
+      final OfInt prefix = new CharSpliterator(EndlessString.this, lo, this.pos, false);
+      if (this.batch < 1 << 20)
+        this.batch <<= 1;
+      return prefix;
+    }
 
-      @Override
-      public boolean hasNext() {
-        return true;
-      }
+    @Override
+    public boolean tryAdvance(final IntConsumer action) {
+      requireNonNull(action, "action");
+      action.accept(EndlessString.this.generator.get(this.pos++));
+      return true;
+    }
 
-      @Override
-      public int nextInt() {
-        return EndlessString.this.generator.get(this.pos++);
-      }
+    @Override
+    public long estimateSize() {
+      return Long.MAX_VALUE;
+    }
 
-    };
+    @Override
+    public int characteristics() {
+      return ORDERED | NONNULL;
+    }
   }
 
   @Override
   public IntStream chars() {
-    return StreamSupport.intStream(
-        () -> Spliterators.spliterator(this.intIterator(), Integer.MAX_VALUE, Spliterator.ORDERED),
-        Spliterator.ORDERED, false);
+    return StreamSupport.intStream(EndlessSpliterator::new, Spliterator.ORDERED | Spliterator.NONNULL, false);
   }
 }
@@ -2,27 +2,74 @@ package ch.claude_martin.stringwrappers;
 
 import static java.util.Objects.requireNonNull;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
- * Wrapper that uses a file. The encoding must be UTF-16.
+ * Wrapper that uses a file. The encoding must be UTF-16 (big endian, as written
+ * by {@link RandomAccessFile#writeChar(int)}).
+ *
+ * <p>
+ * The file can also be {@link #mapped(Path) mapped} into memory. Then all
+ * characters are read directly from the mapping and no system call is needed
+ * per character.
+ *
+ * <p>
+ * Otherwise the file is read in pages of {@value #PAGE_SIZE} bytes, which are
+ * kept in a {@link PageCache}. The capacity of that cache can be set for each
+ * wrapper or globally by {@link PageCache#setDefaultCapacity(int)}.
+ *
+ * <p>
+ * Files in other encodings can be wrapped by {@link #of(Path, Charset)}.
+ *
+ * <p>
+ * This is thread-safe. If the wrapper opened the file itself, pages are read
+ * with positional reads of a {@link FileChannel}, so multiple threads can read
+ * at the same time. A thread that is interrupted while it reads a page closes
+ * that channel, as specified by {@link FileChannel}. The channel is then opened
+ * again and the read is repeated, and the interrupt status is kept. If a
+ * {@link RandomAccessFile} is given, its channel must not be closed, so the
+ * pages are read by {@link RandomAccessFile#readFully(byte[], int, int)},
+ * which can not be interrupted. These reads use the file pointer and are
+ * synchronized on the file.
  *
  * <p>
  * Note: This does not implement {@link AutoCloseable}. If a
  * {@link RandomAccessFile} is passed then if must be close by the code that
  * created it. If a path to a file is given then the internally created
- * {@link RandomAccessFile} will be closed automatically.
+ * {@link FileChannel} will be closed automatically.
  *
  * @author Claude Martin
  *
  */
 public final class FileWrapper extends AbstractStringWrapper {
+  /** Size of a page in bytes. */
+  public static final int        PAGE_SIZE  = 1 << 16;
+  /** Number of chars in a page. */
+  private static final int       PAGE_CHARS = PAGE_SIZE / 2;
+
+  /** The given file, or null if the wrapper opened the file itself. */
   private final RandomAccessFile input;
+  /** The file that is opened again if the channel was closed, or null. */
+  private final Path             path;
+  /** The channel used if the wrapper opened the file itself, or null. */
+  private volatile FileChannel   channel;
   private final int              length;
-  private final boolean          closeOnFinalize;
+  private final PageCache        cache;
+
+  /** One buffer per thread, so that pages can be read concurrently. */
+  private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(PAGE_SIZE));
 
   // Finalizer Guardian idiom:
   @SuppressWarnings("unused")
@@ -34,14 +81,18 @@ public final class FileWrapper extends AbstractStringWrapper {
   };
 
   void cleanup() throws IOException {
-    if (this.closeOnFinalize)
-      this.input.close();
+    final FileChannel ch = this.channel;
+    if (ch != null)
+      ch.close();
   }
 
-  private FileWrapper(final RandomAccessFile input, final int length, final boolean closeOnFinalize) {
+  private FileWrapper(final RandomAccessFile input, final Path path, final FileChannel channel, final int length,
+      final PageCache cache) {
     this.input = input;
+    this.path = path;
+    this.channel = channel;
     this.length = length;
-    this.closeOnFinalize = closeOnFinalize;
+    this.cache = cache;
   }
 
   /**
@@ -54,7 +105,23 @@ public final class FileWrapper extends AbstractStringWrapper {
    * @throws IOException
    */
   public static StringWrapper of(final RandomAccessFile input) throws IOException {
-    return _of(input, false);
+    return _of(input, new PageCache());
+  }
+
+  /**
+   * Creates a wrapper from the given RandomAccessFile. Note that the input will
+   * never be closed by this wrapper.
+   *
+   * @param input
+   *          The input.
+   * @param cachePages
+   *          capacity of the {@link PageCache}, in pages of {@value #PAGE_SIZE}
+   *          bytes.
+   * @return new wrapper.
+   * @throws IOException
+   */
+  public static StringWrapper of(final RandomAccessFile input, final int cachePages) throws IOException {
+    return _of(input, new PageCache(cachePages));
   }
 
   /**
@@ -68,7 +135,7 @@ public final class FileWrapper extends AbstractStringWrapper {
    */
   public static StringWrapper of(final Path file) throws IOException {
     requireNonNull(file, "file");
-    return of(file.toFile());
+    return _of(file, new PageCache());
   }
 
   /**
@@ -82,8 +149,25 @@ public final class FileWrapper extends AbstractStringWrapper {
    */
   public static StringWrapper of(final File file) throws IOException {
     requireNonNull(file, "file");
-    final RandomAccessFile raf = new RandomAccessFile(file, "r");
-    return _of(raf, true);
+    return _of(file.toPath(), new PageCache());
+  }
+
+  /**
+   * Creates a wrapper from the given file. Note that the input will be closed
+   * by this wrapper when it is removed by garbage collection.
+   *
+   * @param file
+   *          the file
+   * @param cachePages
+   *          capacity of the {@link PageCache}, in pages of {@value #PAGE_SIZE}
+   *          bytes.
+   * @return New wrapper.
+   * @throws IOException
+   */
+  public static StringWrapper of(final Path file, final int cachePages) throws IOException {
+    requireNonNull(file, "file");
+    final PageCache cache = new PageCache(cachePages);
+    return _of(file, cache);
   }
 
   /**
@@ -100,18 +184,128 @@ public final class FileWrapper extends AbstractStringWrapper {
     return of(new File(file.toString()));
   }
 
-  private static StringWrapper _of(final RandomAccessFile input, final boolean closeOnFinalize) throws IOException {
-    final long len = input.length();
-    if (0 == len) {
-      if (closeOnFinalize)
-        input.close();
-      return EmptyWrapper.INSTANCE;
+  /**
+   * Creates a wrapper from the given file. If <i>map</i> is true then the file
+   * is {@link #mapped(Path) mapped} into memory.
+   *
+   * @param file
+   *          the file
+   * @param map
+   *          map the file into memory
+   * @return New wrapper.
+   * @throws IOException
+   */
+  public static StringWrapper of(final Path file, final boolean map) throws IOException {
+    requireNonNull(file, "file");
+    if (map)
+      return mapped(file);
+    return of(file);
+  }
+
+  /**
+   * Creates a wrapper from the given file. If <i>map</i> is true then the file
+   * is {@link #mapped(Path) mapped} into memory.
+   *
+   * @param file
+   *          the file
+   * @param map
+   *          map the file into memory
+   * @return New wrapper.
+   * @throws IOException
+   */
+  public static StringWrapper of(final File file, final boolean map) throws IOException {
+    requireNonNull(file, "file");
+    return of(file.toPath(), map);
+  }
+
+  /**
+   * Creates a wrapper from the given file. If <i>map</i> is true then the file
+   * is {@link #mapped(Path) mapped} into memory.
+   *
+   * @param file
+   *          the system-dependent filename
+   * @param map
+   *          map the file into memory
+   * @return New wrapper.
+   * @throws IOException
+   */
+  public static StringWrapper of(final CharSequence file, final boolean map) throws IOException {
+    requireNonNull(file, "file");
+    return of(new File(file.toString()), map);
+  }
+
+  /**
+   * Creates a wrapper from the given file, using the given charset. For UTF-16BE
+   * this is the same as {@link #of(Path)}, all other charsets are decoded by a
+   * {@link CharsetFileWrapper}.
+   *
+   * @param file
+   *          the file
+   * @param charset
+   *          the encoding of the file
+   * @return New wrapper.
+   * @throws IOException
+   */
+  public static StringWrapper of(final Path file, final Charset charset) throws IOException {
+    requireNonNull(file, "file");
+    requireNonNull(charset, "charset");
+    if (charset.equals(StandardCharsets.UTF_16BE))
+      return of(file);
+    return CharsetFileWrapper.of(file, charset);
+  }
+
+  /**
+   * Maps the given file into memory. The mapping stays valid until the wrapper
+   * is removed by garbage collection, no file handle is kept open. The file
+   * must not be altered while it is mapped.
+   *
+   * @param file
+   *          the file
+   * @return New wrapper.
+   * @throws IOException
+   * @see FileChannel#map(MapMode, long, long)
+   */
+  public static StringWrapper mapped(final Path file) throws IOException {
+    requireNonNull(file, "file");
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final long len = channel.size() / 2;
+      if (0 == len)
+        return EmptyWrapper.INSTANCE;
+      if (Integer.MAX_VALUE <= channel.size()) {
+        throw new IOException("File too long.");
+      }
+      final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, 2 * len);
+      return new MappedFileWrapper(buffer.asCharBuffer());
     }
-    if (Integer.MAX_VALUE <= len) {
+  }
+
+  private static StringWrapper _of(final RandomAccessFile input, final PageCache cache) throws IOException {
+    final long len = input.length() / 2;
+    if (0 == len)
+      return EmptyWrapper.INSTANCE;
+    if (Integer.MAX_VALUE <= input.length()) {
       throw new IOException("File too long.");
     }
 
-    return new FileWrapper(input, (int) len, closeOnFinalize);
+    return new FileWrapper(input, null, null, (int) len, cache);
+  }
+
+  private static StringWrapper _of(final Path file, final PageCache cache) throws IOException {
+    final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      final long len = channel.size() / 2;
+      if (0 == len) {
+        channel.close();
+        return EmptyWrapper.INSTANCE;
+      }
+      if (Integer.MAX_VALUE <= channel.size()) {
+        throw new IOException("File too long.");
+      }
+      return new FileWrapper(null, file, channel, (int) len, cache);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
   }
 
   @Override
@@ -119,13 +313,112 @@ public final class FileWrapper extends AbstractStringWrapper {
     return this.length;
   }
 
+  /** The cache of this wrapper. */
+  public PageCache getCache() {
+    return this.cache;
+  }
+
+  @Override
+  long retained(final boolean bytes) {
+    return (long) this.cache.size() * (bytes ? 2 * PAGE_CHARS : PAGE_CHARS);
+  }
+
   @Override
   public char charAt(final int index) {
+    if (index < 0 || index >= this.length)
+      throw new StringIndexOutOfBoundsException(index);
+    return this.page(index / PAGE_CHARS)[index % PAGE_CHARS];
+  }
+
+  private char[] page(final int page) {
     try {
-      this.input.seek(index);
-      return this.input.readChar();
+      return this.cache.get(page, this::load);
     } catch (final IOException e) {
-      throw new RuntimeException("Can't get char at " + index, e);
+      throw new RuntimeException("Can't read page " + page, e);
+    }
+  }
+
+  /** Reads a page. */
+  private char[] load(final int page) throws IOException {
+    final int start = page * PAGE_CHARS;
+    final char[] chars = new char[Math.min(PAGE_CHARS, this.length - start)];
+    final ByteBuffer buffer = BUFFER.get();
+    buffer.clear().limit(2 * chars.length);
+    if (this.input != null) {
+      synchronized (this.input) {
+        this.input.seek(2L * start);
+        this.input.readFully(buffer.array(), 0, buffer.limit());
+      }
+    } else {
+      this.read(buffer, 2L * start);
+    }
+    buffer.rewind();
+    buffer.asCharBuffer().get(chars);
+    return chars;
+  }
+
+  /**
+   * Fills the buffer by positional reads, which do not use or change the file
+   * pointer. If the channel was closed by an interrupt it is opened again.
+   */
+  private void read(final ByteBuffer buffer, final long start) throws IOException {
+    boolean interrupted = false;
+    try {
+      for (int attempt = 0;; attempt++) {
+        final FileChannel ch = this.channel;
+        buffer.position(0);
+        try {
+          for (long pos = start; buffer.hasRemaining();) {
+            final int n = ch.read(buffer, pos);
+            if (n < 0)
+              throw new EOFException("Can't read at " + start);
+            pos += n;
+          }
+          return;
+        } catch (final ClosedChannelException e) {
+          // The interrupt status would close the new channel at once.
+          interrupted |= Thread.interrupted();
+          if (attempt >= 2)
+            throw e;
+          this.reopen(ch);
+        }
+      }
+    } finally {
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Opens the file again, unless another thread already did. */
+  private synchronized void reopen(final FileChannel closed) throws IOException {
+    if (this.channel == closed && !closed.isOpen())
+      this.channel = FileChannel.open(this.path, StandardOpenOption.READ);
+  }
+
+  @Override
+  public int indexOf(final char chr, final int fromIndex) {
+    for (int i = Math.max(0, fromIndex); i < this.length;) {
+      final int start = i - i % PAGE_CHARS;
+      final char[] chars = this.page(i / PAGE_CHARS);
+      for (int j = i - start; j < chars.length; j++) {
+        if (chars[j] == chr)
+          return start + j;
+      }
+      i = start + chars.length;
+    }
+    return -1;
+  }
+
+  @Override
+  public void getChars(int srcBegin, final int srcEnd, final char[] dst, int dstBegin) {
+    StringUtils.checkRange(srcBegin, srcEnd, this.length);
+    while (srcBegin < srcEnd) {
+      final int offset = srcBegin % PAGE_CHARS;
+      final char[] chars = this.page(srcBegin / PAGE_CHARS);
+      final int n = Math.min(chars.length - offset, srcEnd - srcBegin);
+      System.arraycopy(chars, offset, dst, dstBegin, n);
+      srcBegin += n;
+      dstBegin += n;
     }
   }
 }
@@ -0,0 +1,102 @@
+package ch.claude_martin.stringwrappers;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides when a {@link Memoized} wrapper copies the content of its source. A
+ * copy is made when the number of accesses passes the threshold. The counters
+ * are shared by all wrappers that use the same policy and can be used to find
+ * a good threshold.
+ *
+ * <p>
+ * This is thread-safe.
+ *
+ * @see StringWrapper#memoize(FlattenPolicy)
+ */
+public final class FlattenPolicy {
+  /** The policy used by {@link StringWrapper#memoize()}. */
+  public static final FlattenPolicy DEFAULT   = new FlattenPolicy(16);
+
+  private final int                 threshold;
+  private final LongAdder           accesses  = new LongAdder();
+  private final LongAdder           hits      = new LongAdder();
+  private final LongAdder           flattens  = new LongAdder();
+  private final LongAdder           reclaims  = new LongAdder();
+  private final LongAdder           flatChars = new LongAdder();
+
+  private FlattenPolicy(final int threshold) {
+    this.threshold = threshold;
+  }
+
+  /**
+   * Creates a policy with its own counters.
+   *
+   * @param threshold
+   *          number of accesses before the content is copied. 0 copies on the
+   *          first access.
+   */
+  public static FlattenPolicy of(final int threshold) {
+    if (threshold < 0)
+      throw new IllegalArgumentException("threshold = " + threshold);
+    return new FlattenPolicy(threshold);
+  }
+
+  /** Number of accesses before the content is copied. */
+  public int getThreshold() {
+    return this.threshold;
+  }
+
+  /** Checks if a wrapper with the given number of accesses should be flattened. */
+  boolean shouldFlatten(final int count) {
+    return count > this.threshold;
+  }
+
+  void access() {
+    this.accesses.increment();
+  }
+
+  void hit() {
+    this.hits.increment();
+  }
+
+  void flattened(final int length) {
+    this.flattens.increment();
+    this.flatChars.add(length);
+  }
+
+  void reclaimed() {
+    this.reclaims.increment();
+  }
+
+  /** Number of accesses that were passed to the source. */
+  public long getAccesses() {
+    return this.accesses.sum();
+  }
+
+  /** Number of accesses that were served from a copy. */
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  /** Number of copies that were made. */
+  public long getFlattens() {
+    return this.flattens.sum();
+  }
+
+  /** Number of copies that were reclaimed by the garbage collector. */
+  public long getReclaims() {
+    return this.reclaims.sum();
+  }
+
+  /** Total number of characters that were copied. */
+  public long getFlatChars() {
+    return this.flatChars.sum();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("FlattenPolicy[threshold=%d, accesses=%d, hits=%d, flattens=%d, reclaims=%d, chars=%d]",
+        this.threshold, this.getAccesses(), this.getHits(), this.getFlattens(), this.getReclaims(),
+        this.getFlatChars());
+  }
+}
@@ -16,14 +16,24 @@ public class L337Wrapper {
     if (s.length() == 0)
       return EmptyWrapper.INSTANCE;
     final Random rng = new Random(s.hashCode());
-    return new CharWrapper(s, c -> {
-      for (final Symbols sym : Symbols.values())
-        if (sym.chars[0] == c || sym.chars[1] == c)
-          return sym.get(rng);
-      return c;
+    return CharWrapper.of(s, c -> {
+      final Symbols sym = c < 128 ? SYMBOLS[c] : null;
+      return sym == null ? c : sym.get(rng);
     });
   }
 
+  /**
+   * The symbols by ASCII letter. The mapping itself is random, so it can't be a
+   * lookup table.
+   */
+  private static final Symbols[] SYMBOLS = new Symbols[128];
+  static {
+    for (final Symbols sym : Symbols.values()) {
+      SYMBOLS[sym.chars[0]] = sym;
+      SYMBOLS[sym.chars[1]] = sym;
+    }
+  }
+
   private static enum Symbols {
     // These characters should be available on any system and most fonts support
     // them. Windows Codepage 1252 contains them all.
@@ -0,0 +1,71 @@
+package ch.claude_martin.stringwrappers;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link CharMapper} that looks up the result in a table, so that mapping is
+ * a single array load. The table is built from some other mapper, which must
+ * always return the same result for the same character.
+ *
+ * <p>
+ * The table for Latin-1 is dense and built at once. The rest of the BMP is
+ * divided into pages of 256 characters, which are built when they are used for
+ * the first time. Pages that do not change any character are not stored.
+ *
+ * @see CharMapper#lookupTable(CharMapper)
+ */
+final class LookupTableMapper implements CharMapper {
+  /** Marks a page that maps every character to itself. */
+  private static final char[]                IDENTITY_PAGE = new char[0];
+
+  private final CharMapper                   mapper;
+  private final char[]                       latin1        = new char[256];
+  private final AtomicReferenceArray<char[]> pages         = new AtomicReferenceArray<>(256);
+
+  private LookupTableMapper(final CharMapper mapper) {
+    this.mapper = mapper;
+    for (int c = 0; c < 256; c++)
+      this.latin1[c] = mapper.map((char) c);
+  }
+
+  static CharMapper of(final CharMapper mapper) {
+    if (mapper instanceof LookupTableMapper || mapper == CharMapper.IDENTITY)
+      return mapper;
+    return new LookupTableMapper(mapper);
+  }
+
+  /** The mapper that is used to build the table. */
+  CharMapper getMapper() {
+    return this.mapper;
+  }
+
+  @Override
+  public char map(final char c) {
+    if (c < 256)
+      return this.latin1[c];
+    char[] page = this.pages.get(c >>> 8);
+    if (page == null)
+      page = this.build(c >>> 8);
+    return page == IDENTITY_PAGE ? c : page[c & 0xFF];
+  }
+
+  private char[] build(final int p) {
+    char[] page = new char[256];
+    boolean identity = true;
+    for (int i = 0; i < 256; i++) {
+      final char c = (char) (p << 8 | i);
+      page[i] = this.mapper.map(c);
+      identity &= page[i] == c;
+    }
+    if (identity)
+      page = IDENTITY_PAGE;
+    // Another thread might have built the same page. Both are equal.
+    this.pages.lazySet(p, page);
+    return page;
+  }
+
+  @Override
+  public String toString() {
+    return "LookupTableMapper[" + this.mapper + "]";
+  }
+}
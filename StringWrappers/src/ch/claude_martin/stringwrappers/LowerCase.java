@@ -2,20 +2,40 @@ package ch.claude_martin.stringwrappers;
 
 public final class LowerCase extends CharWrapper {
 
-  private LowerCase(final CharSequence source) {
-    super(source, CharMapper.TO_LOWER_CASE);
+  private LowerCase(final CharSequence source, final CharMapper mapper) {
+    super(source, mapper);
   }
 
   public static StringWrapper of(final CharSequence source) {
     if (source instanceof LowerCase)
       return (LowerCase) source;
+    return create(source, CharMapper.TO_LOWER_CASE);
+  }
+
+  /**
+   * Creates a wrapper that applies the given mapper, which must end with
+   * {@link CharMapper#TO_LOWER_CASE}. Any mapping of the source is fused.
+   */
+  private static StringWrapper create(CharSequence source, final CharMapper mapper) {
+    source = NullWrapper.unwrap(source);
     if (0 == source.length())
       return EmptyWrapper.INSTANCE;
-    return new LowerCase(source);
+    final CharMapper inner = mapperOf(source);
+    if (inner != null)
+      return new LowerCase(((AbstractSourceWrapper) source).getSource(), CharMapper.compose(inner, mapper));
+    return new LowerCase(source, mapper);
+  }
+
+  @Override
+  StringWrapper rewrap(final CharSequence source) {
+    return create(source, this.getMapper());
   }
 
+  /** Only characters that are already lower case can be the result of the mapping. */
   @Override
   protected boolean canContain(final char chr) {
-    return Character.isLowerCase(chr);
+    if (CharMapper.TO_LOWER_CASE.map(chr) != chr)
+      return false;
+    return super.canContain(chr);
   }
 }
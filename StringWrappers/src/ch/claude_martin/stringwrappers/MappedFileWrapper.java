@@ -0,0 +1,53 @@
+package ch.claude_martin.stringwrappers;
+
+import java.nio.CharBuffer;
+
+/**
+ * Wrapper of a file that is mapped into memory. The encoding must be UTF-16.
+ * All characters are read directly from the mapping. Absolute reads do not
+ * change the position of the buffer, so this is safe to be used by multiple
+ * threads.
+ *
+ * @see FileWrapper#mapped(java.nio.file.Path)
+ */
+final class MappedFileWrapper extends AbstractStringWrapper {
+  private final CharBuffer chars;
+
+  MappedFileWrapper(final CharBuffer chars) {
+    super();
+    this.chars = chars;
+  }
+
+  @Override
+  public int length() {
+    return this.chars.limit();
+  }
+
+  @Override
+  public char charAt(final int index) {
+    if (index < 0 || index >= this.chars.limit())
+      throw new StringIndexOutOfBoundsException(index);
+    return this.chars.get(index);
+  }
+
+  @Override
+  public int indexOf(final char chr, final int fromIndex) {
+    final CharBuffer buf = this.chars;
+    final int length = buf.limit();
+    for (int i = Math.max(0, fromIndex); i < length; i++) {
+      if (buf.get(i) == chr)
+        return i;
+    }
+    return -1;
+  }
+
+  @Override
+  public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    StringUtils.checkRange(srcBegin, srcEnd, this.chars.limit());
+    // A duplicate has its own position, so this is a bulk copy without
+    // altering the shared buffer.
+    final CharBuffer buf = this.chars.duplicate();
+    buf.position(srcBegin);
+    buf.get(dst, dstBegin, srcEnd - srcBegin);
+  }
+}
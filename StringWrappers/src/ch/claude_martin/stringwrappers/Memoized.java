@@ -0,0 +1,179 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wrapper that copies the content of its source once it is accessed often
+ * enough. This is useful for deep chains of wrappers, which otherwise compute
+ * each character again on each access. The {@link FlattenPolicy} decides when
+ * the copy is made.
+ *
+ * <p>
+ * The copy is a <code>byte[]</code> if all characters are Latin-1, otherwise
+ * it is a <code>char[]</code>. It is held by a {@link SoftReference}, so the
+ * garbage collector can reclaim it. Then the source is used again until the
+ * next copy is made.
+ *
+ * <p>
+ * The source must not be modified after the first access. Mutable sources
+ * (like a {@link StringBuilder}) should not be memoized.
+ *
+ * @see StringWrapper#memoize(FlattenPolicy)
+ */
+public final class Memoized extends AbstractSourceWrapper {
+  private final FlattenPolicy            policy;
+  private final int                      length;
+  /** Number of accesses since the last copy was made or reclaimed. */
+  private final AtomicInteger            count = new AtomicInteger();
+  /** The copy: <code>byte[]</code> or <code>char[]</code>. Null if there is none. */
+  private volatile SoftReference<Object> flat;
+
+  private Memoized(final CharSequence source, final FlattenPolicy policy) {
+    super(source);
+    this.policy = policy;
+    this.length = source.length();
+  }
+
+  /**
+   * Memoizes the given sequence, using the given policy. Sequences that
+   * already have an array (or a {@link String}) are not wrapped.
+   */
+  public static StringWrapper of(final CharSequence source, final FlattenPolicy policy) {
+    requireNonNull(source, "source");
+    requireNonNull(policy, "policy");
+    if (source.length() == 0)
+      return StringUtils.empty();
+    if (source instanceof String || source instanceof CharArrayWrapper || source instanceof ByteArrayWrapper)
+      return NullWrapper.of(source);
+    if (source instanceof Memoized && ((Memoized) source).policy == policy)
+      return (Memoized) source;
+    return new Memoized(NullWrapper.unwrap(source), policy);
+  }
+
+  /** Memoizes the given sequence, using the {@link FlattenPolicy#DEFAULT default} policy. */
+  public static StringWrapper of(final CharSequence source) {
+    return of(source, FlattenPolicy.DEFAULT);
+  }
+
+  public FlattenPolicy getPolicy() {
+    return this.policy;
+  }
+
+  /** Checks if there is a copy at the moment. */
+  public boolean isFlat() {
+    final SoftReference<Object> ref = this.flat;
+    return ref != null && ref.get() != null;
+  }
+
+  /**
+   * Counts an access and returns the copy. This makes the copy if the policy
+   * says so. Returns null if the source has to be used.
+   */
+  private Object flat() {
+    final SoftReference<Object> ref = this.flat;
+    if (ref != null) {
+      final Object f = ref.get();
+      if (f != null) {
+        this.policy.hit();
+        return f;
+      }
+      this.reclaimed(ref);
+    }
+    if (this.policy.shouldFlatten(this.count.incrementAndGet()))
+      return this.flatten();
+    this.policy.access();
+    return null;
+  }
+
+  private synchronized void reclaimed(final SoftReference<Object> ref) {
+    // Only the first thread that sees the cleared reference resets the count.
+    if (this.flat == ref) {
+      this.policy.reclaimed();
+      this.flat = null;
+      this.count.set(0);
+    }
+  }
+
+  /**
+   * Makes the copy. Threads that pass the threshold at the same time wait for
+   * the first one, so the source is only copied once.
+   */
+  private synchronized Object flatten() {
+    final SoftReference<Object> ref = this.flat;
+    final Object existing = ref == null ? null : ref.get();
+    if (existing != null) {
+      this.policy.hit();
+      return existing;
+    }
+    final int len = this.length;
+    final Object f = new CompactBuilder(len).append(this.getSource(), 0, len).array();
+    this.flat = new SoftReference<>(f);
+    this.policy.flattened(len);
+    return f;
+  }
+
+  @Override
+  long retained(final boolean bytes) {
+    final SoftReference<Object> ref = this.flat;
+    final Object f = ref == null ? null : ref.get();
+    long copy = 0;
+    if (f instanceof byte[])
+      copy = ((byte[]) f).length;
+    else if (f instanceof char[])
+      copy = bytes ? 2L * ((char[]) f).length : ((char[]) f).length;
+    return copy + super.retained(bytes);
+  }
+
+  @Override
+  public int length() {
+    return this.length;
+  }
+
+  @Override
+  public char charAt(final int index) {
+    final Object f = this.flat();
+    if (f == null || index < 0 || index >= this.length)
+      return this.getSource().charAt(index);
+    if (f instanceof byte[])
+      return (char) (((byte[]) f)[index] & 0xFF);
+    return ((char[]) f)[index];
+  }
+
+  @Override
+  public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    StringUtils.checkRange(srcBegin, srcEnd, this.length);
+    final Object f = this.flat();
+    if (f == null)
+      StringUtils.getChars(this.getSource(), srcBegin, srcEnd, dst, dstBegin);
+    else if (f instanceof byte[])
+      ArrayKernels.inflate((byte[]) f, srcBegin, dst, dstBegin, srcEnd - srcBegin);
+    else
+      System.arraycopy(f, srcBegin, dst, dstBegin, srcEnd - srcBegin);
+  }
+
+  @Override
+  public int indexOf(final char chr, final int fromIndex) {
+    final Object f = this.flat();
+    final int from = Math.max(0, fromIndex);
+    if (f == null || from >= this.length)
+      return super.indexOf(chr, fromIndex);
+    if (f instanceof byte[])
+      return chr > 0xFF ? -1 : ArrayKernels.indexOf((byte[]) f, from, this.length, (byte) chr);
+    return ArrayKernels.indexOf((char[]) f, from, this.length, chr);
+  }
+
+  @Override
+  public String toString() {
+    final Object f = this.flat();
+    if (f == null)
+      return this.getSource().toString();
+    if (f instanceof byte[])
+      return new String((byte[]) f, StandardCharsets.ISO_8859_1);
+    return new String((char[]) f);
+  }
+
+}
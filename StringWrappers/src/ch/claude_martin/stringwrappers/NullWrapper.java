@@ -23,11 +23,31 @@ public final class NullWrapper extends AbstractSourceWrapper {
     return new NullWrapper(source);
   }
 
+  /**
+   * Returns the source if the given sequence is a {@link NullWrapper}, so that
+   * other wrappers do not need to wrap it.
+   */
+  static CharSequence unwrap(final CharSequence s) {
+    if (s instanceof NullWrapper)
+      return ((NullWrapper) s).getSource();
+    return s;
+  }
+
   @Override
   public char charAt(final int index) {
     return this.getSource().charAt(index);
   }
 
+  @Override
+  public int contentHash() {
+    return StringUtils.hashCode(this.getSource());
+  }
+
+  @Override
+  public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    StringUtils.getChars(this.getSource(), srcBegin, srcEnd, dst, dstBegin);
+  }
+
   @Override
   public String toString() {
     return this.getSource().toString();
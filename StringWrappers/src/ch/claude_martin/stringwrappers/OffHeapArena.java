@@ -0,0 +1,176 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.claude_martin.stringwrappers.OffHeapWrapper.Layout;
+
+/**
+ * Owner of {@link OffHeapWrapper}s. The text is copied into direct buffers,
+ * which are outside of the heap. All wrappers of the arena can be used until
+ * the arena is {@link #close() closed}. After that they throw an
+ * {@link IllegalStateException}.
+ *
+ * <p>
+ * Java 8 can not free a direct buffer explicitly. Closing the arena releases
+ * all buffers, so that their memory is freed as soon as the buffers are
+ * collected, even if some wrappers are still referenced. The arena must not be
+ * closed while other threads still use its wrappers.
+ *
+ * <pre>
+ * try (OffHeapArena arena = OffHeapArena.open()) {
+ *   StringWrapper text = arena.copy(FileWrapper.of(path));
+ *   ...
+ * }
+ * </pre>
+ */
+public final class OffHeapArena implements AutoCloseable {
+  private final List<OffHeapWrapper> wrappers = new ArrayList<>();
+  private long                       byteSize;
+  private boolean                    closed;
+
+  private OffHeapArena() {
+  }
+
+  /** Creates a new, empty arena. */
+  public static OffHeapArena open() {
+    return new OffHeapArena();
+  }
+
+  private synchronized StringWrapper add(final OffHeapWrapper wrapper) {
+    if (this.closed)
+      throw new IllegalStateException("The arena is closed.");
+    this.wrappers.add(wrapper);
+    this.byteSize += wrapper.byteSize();
+    return wrapper;
+  }
+
+  private static ByteBuffer allocate(final long bytes) {
+    if (bytes > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Too many bytes: " + bytes);
+    return ByteBuffer.allocateDirect((int) bytes);
+  }
+
+  /**
+   * Copies the text, using one byte per char.
+   *
+   * @throws IllegalArgumentException
+   *           if the text contains a char that is not Latin-1.
+   */
+  public StringWrapper latin1(final CharSequence text) {
+    requireNonNull(text, "text");
+    final int length = text.length();
+    if (length == 0)
+      return StringUtils.empty();
+    final ByteBuffer buffer = allocate(length);
+    final char[] chars = new char[Math.min(length, 4096)];
+    final byte[] bytes = new byte[chars.length];
+    for (int pos = 0; pos < length; pos += chars.length) {
+      final int n = Math.min(chars.length, length - pos);
+      StringUtils.getChars(text, pos, pos + n, chars, 0);
+      final int i = ArrayKernels.indexOfNonLatin1(chars, 0, n);
+      if (i >= 0)
+        throw new IllegalArgumentException("Not Latin-1 at index " + (pos + i));
+      ArrayKernels.narrow(chars, 0, bytes, 0, n);
+      buffer.put(bytes, 0, n);
+    }
+    buffer.flip();
+    return this.add(new OffHeapWrapper.Latin1Layout(buffer));
+  }
+
+  /** Copies the text, using two bytes per char. */
+  public StringWrapper utf16(final CharSequence text) {
+    requireNonNull(text, "text");
+    final int length = text.length();
+    if (length == 0)
+      return StringUtils.empty();
+    final ByteBuffer buffer = allocate(2L * length).order(ByteOrder.nativeOrder());
+    final char[] chars = new char[Math.min(length, 4096)];
+    for (int pos = 0; pos < length; pos += chars.length) {
+      final int n = Math.min(chars.length, length - pos);
+      StringUtils.getChars(text, pos, pos + n, chars, 0);
+      buffer.asCharBuffer().put(chars, 0, n);
+      buffer.position(buffer.position() + 2 * n);
+    }
+    buffer.flip();
+    return this.add(new OffHeapWrapper.Utf16Layout(buffer));
+  }
+
+  /**
+   * Copies the text, encoded as UTF-8. Unpaired surrogates are replaced by '?'.
+   * The text is read twice, once to count the bytes.
+   */
+  public StringWrapper utf8(final CharSequence text) {
+    requireNonNull(text, "text");
+    if (text.length() == 0)
+      return StringUtils.empty();
+    final ByteBuffer buffer = allocate(Utf8.encode(text, null));
+    Utf8.encode(text, buffer);
+    buffer.flip();
+    return this.add(new OffHeapWrapper.Utf8Layout(buffer, Utf8.index(buffer, buffer.limit())));
+  }
+
+  /**
+   * Copies the text, using Latin-1 if possible. Otherwise UTF-16 is used.
+   */
+  public StringWrapper copy(final CharSequence text) {
+    requireNonNull(text, "text");
+    return StringUtils.isLatin1(text) ? this.latin1(text) : this.utf16(text);
+  }
+
+  /**
+   * Wraps the remaining bytes of the given buffer, without copying them. The
+   * buffer should be direct and must not be modified afterwards. The wrapper is
+   * released when this arena is closed.
+   */
+  public StringWrapper wrap(final ByteBuffer buffer, final Layout layout) {
+    requireNonNull(buffer, "buffer");
+    requireNonNull(layout, "layout");
+    final ByteBuffer b = buffer.slice().order(buffer.order());
+    if (b.limit() == 0)
+      return StringUtils.empty();
+    switch (layout) {
+    case LATIN1:
+      return this.add(new OffHeapWrapper.Latin1Layout(b));
+    case UTF16:
+      if (b.limit() % 2 != 0)
+        throw new IllegalArgumentException("Odd number of bytes: " + b.limit());
+      return this.add(new OffHeapWrapper.Utf16Layout(b));
+    case UTF8:
+      return this.add(new OffHeapWrapper.Utf8Layout(b, Utf8.index(b, b.limit())));
+    default:
+      throw new IllegalArgumentException(layout.name());
+    }
+  }
+
+  /** Number of bytes of all wrappers of this arena. */
+  public synchronized long byteSize() {
+    return this.byteSize;
+  }
+
+  public synchronized boolean isClosed() {
+    return this.closed;
+  }
+
+  /** Releases all wrappers of this arena. Closing it again has no effect. */
+  @Override
+  public synchronized void close() {
+    if (this.closed)
+      return;
+    this.closed = true;
+    for (final OffHeapWrapper w : this.wrappers)
+      w.release();
+    this.wrappers.clear();
+    this.byteSize = 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("OffHeapArena[wrappers=%d, bytes=%d%s]", this.wrappers.size(), this.byteSize,
+        this.closed ? ", closed" : "");
+  }
+}
@@ -0,0 +1,237 @@
+package ch.claude_martin.stringwrappers;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Wrapper of text that is stored outside of the heap, in a direct
+ * {@link ByteBuffer}. The garbage collector never scans or copies that memory.
+ * Each wrapper belongs to an {@link OffHeapArena} and can not be used after the
+ * arena is closed.
+ *
+ * <p>
+ * The text can be stored as Latin-1 (one byte per char), UTF-16 (two bytes per
+ * char) or UTF-8. Random access to UTF-8 uses an index on the heap, which
+ * holds one int for every {@value Utf8#STRIDE} chars. If the UTF-8 text is
+ * ASCII then no index is needed.
+ *
+ * <p>
+ * This is thread-safe, as long as the arena is not closed while it is used.
+ *
+ * @see OffHeapArena
+ */
+public abstract class OffHeapWrapper extends AbstractStringWrapper {
+  /** How the chars are stored. */
+  public static enum Layout {
+    /** One byte per char. All chars must be Latin-1. */
+    LATIN1,
+    /** Two bytes per char, in the byte order of the buffer. */
+    UTF16,
+    /** One to four bytes per code point. */
+    UTF8;
+  }
+
+  /** The buffer. Null after the arena was closed. */
+  private volatile Buffer buffer;
+  private final int       length;
+  private final long      byteSize;
+
+  OffHeapWrapper(final Buffer buffer, final int length, final long byteSize) {
+    super();
+    this.buffer = buffer;
+    this.length = length;
+    this.byteSize = byteSize;
+  }
+
+  /** The buffer. Throws an {@link IllegalStateException} if it was released. */
+  final Buffer buffer() {
+    final Buffer b = this.buffer;
+    if (b == null)
+      throw new IllegalStateException("The arena is closed.");
+    return b;
+  }
+
+  /** Releases the buffer. This is called when the arena is closed. */
+  final void release() {
+    this.buffer = null;
+  }
+
+  /** Checks if the arena of this wrapper is still open. */
+  public final boolean isOpen() {
+    return this.buffer != null;
+  }
+
+  public abstract Layout getLayout();
+
+  /** Number of bytes that are used outside of the heap. */
+  public final long byteSize() {
+    return this.byteSize;
+  }
+
+  @Override
+  public final int length() {
+    return this.length;
+  }
+
+  final void checkIndex(final int index) {
+    if (index < 0 || index >= this.length)
+      throw new StringIndexOutOfBoundsException(index);
+  }
+
+  @Override
+  boolean isImmutable() {
+    return true;
+  }
+
+  /** Copies bytes to chars, as Latin-1. The range must be valid. */
+  static void inflate(final ByteBuffer bytes, final int srcBegin, final int srcEnd, final char[] dst,
+      final int dstBegin) {
+    // A duplicate has its own position, so the shared buffer is not altered.
+    final ByteBuffer b = bytes.duplicate();
+    b.position(srcBegin);
+    final byte[] tmp = new byte[Math.min(512, srcEnd - srcBegin)];
+    for (int pos = srcBegin; pos < srcEnd; pos += tmp.length) {
+      final int n = Math.min(tmp.length, srcEnd - pos);
+      b.get(tmp, 0, n);
+      ArrayKernels.inflate(tmp, 0, dst, dstBegin + pos - srcBegin, n);
+    }
+  }
+
+  /** Reads the chars in blocks. */
+  @Override
+  public int indexOf(final char chr, final int fromIndex) {
+    final int length = this.length;
+    final int from = Math.max(0, fromIndex);
+    if (from >= length || !this.canContain(chr))
+      return -1;
+    final char[] buf = new char[Math.min(512, length - from)];
+    for (int pos = from; pos < length; pos += buf.length) {
+      final int n = Math.min(buf.length, length - pos);
+      this.getChars(pos, pos + n, buf, 0);
+      final int i = ArrayKernels.indexOf(buf, 0, n, chr);
+      if (i >= 0)
+        return pos + i;
+    }
+    return -1;
+  }
+
+  /** Latin-1, one byte per char. */
+  static final class Latin1Layout extends OffHeapWrapper {
+    Latin1Layout(final ByteBuffer bytes) {
+      super(bytes, bytes.limit(), bytes.limit());
+    }
+
+    @Override
+    public Layout getLayout() {
+      return Layout.LATIN1;
+    }
+
+    @Override
+    public char charAt(final int index) {
+      this.checkIndex(index);
+      return (char) (((ByteBuffer) this.buffer()).get(index) & 0xFF);
+    }
+
+    @Override
+    public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+      StringUtils.checkRange(srcBegin, srcEnd, this.length());
+      inflate((ByteBuffer) this.buffer(), srcBegin, srcEnd, dst, dstBegin);
+    }
+
+    @Override
+    public int indexOf(final char chr, final int fromIndex) {
+      if (chr > 0xFF)
+        return -1;
+      final int length = this.length();
+      final int from = Math.max(0, fromIndex);
+      if (from >= length)
+        return -1;
+      final ByteBuffer b = ((ByteBuffer) this.buffer()).duplicate();
+      b.position(from);
+      final byte[] tmp = new byte[Math.min(512, length - from)];
+      for (int pos = from; pos < length; pos += tmp.length) {
+        final int n = Math.min(tmp.length, length - pos);
+        b.get(tmp, 0, n);
+        final int i = ArrayKernels.indexOf(tmp, 0, n, (byte) chr);
+        if (i >= 0)
+          return pos + i;
+      }
+      return -1;
+    }
+
+    @Override
+    protected boolean canContain(final char chr) {
+      return chr <= 0xFF && super.canContain(chr);
+    }
+  }
+
+  /** UTF-16, two bytes per char. */
+  static final class Utf16Layout extends OffHeapWrapper {
+    Utf16Layout(final ByteBuffer bytes) {
+      super(bytes.asCharBuffer(), bytes.limit() / 2, bytes.limit());
+    }
+
+    @Override
+    public Layout getLayout() {
+      return Layout.UTF16;
+    }
+
+    @Override
+    public char charAt(final int index) {
+      this.checkIndex(index);
+      return ((CharBuffer) this.buffer()).get(index);
+    }
+
+    @Override
+    public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+      StringUtils.checkRange(srcBegin, srcEnd, this.length());
+      // A duplicate has its own position, so the shared buffer is not altered.
+      final CharBuffer b = ((CharBuffer) this.buffer()).duplicate();
+      b.position(srcBegin);
+      b.get(dst, dstBegin, srcEnd - srcBegin);
+    }
+  }
+
+  /** UTF-8, with an index for random access. */
+  static final class Utf8Layout extends OffHeapWrapper {
+    private final Utf8.Index index;
+    private final int        limit;
+
+    Utf8Layout(final ByteBuffer bytes, final Utf8.Index index) {
+      super(bytes, index.length, bytes.limit());
+      this.index = index;
+      this.limit = bytes.limit();
+    }
+
+    @Override
+    public Layout getLayout() {
+      return Layout.UTF8;
+    }
+
+    @Override
+    public char charAt(final int index) {
+      this.checkIndex(index);
+      final ByteBuffer b = (ByteBuffer) this.buffer();
+      if (this.index.ascii)
+        return (char) b.get(index);
+      return Utf8.charAt(b, this.limit, this.index, index);
+    }
+
+    @Override
+    public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+      StringUtils.checkRange(srcBegin, srcEnd, this.length());
+      final ByteBuffer b = (ByteBuffer) this.buffer();
+      if (this.index.ascii)
+        inflate(b, srcBegin, srcEnd, dst, dstBegin);
+      else
+        Utf8.getChars(b, this.limit, this.index, srcBegin, srcEnd, dst, dstBegin);
+    }
+
+    /** Decodes sequentially, without the index. */
+    @Override
+    public CharIterator iterator() {
+      return Utf8.iterator((ByteBuffer) this.buffer(), this.limit);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package ch.claude_martin.stringwrappers;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of pages of characters, with least-recently-used eviction. Each
+ * {@link FileWrapper} has its own cache. The counters can be used to find a
+ * good capacity.
+ *
+ * <p>
+ * This is thread-safe. A hit does not need any lock, it only updates the time
+ * of the last access of the page. That time is measured in misses, so pages
+ * that were used between the same two misses are equally old. A miss loads the page without holding a
+ * lock, so two threads may load the same page at the same time. Only the
+ * insertion of the page (and the eviction of the least recently used page) is
+ * synchronized.
+ *
+ * @see FileWrapper#of(java.nio.file.Path, int)
+ * @see FileWrapper#getCache()
+ */
+public final class PageCache {
+  /** Loads a page on a cache miss. */
+  @FunctionalInterface
+  interface Loader {
+    char[] load(int page) throws IOException;
+  }
+
+  /** A page and its number. */
+  private static final class Page {
+    final int     number;
+    final char[]  chars;
+    /** Logical time of the last access. */
+    volatile long used;
+
+    Page(final int number, final char[] chars, final long used) {
+      this.number = number;
+      this.chars = chars;
+      this.used = used;
+    }
+  }
+
+  private static volatile int                  defaultCapacity = 64;
+
+  private final int                            capacity;
+  private final ConcurrentHashMap<Integer, Page> pages;
+  /** Logical clock for the access times. It only advances on a miss. */
+  private final AtomicLong                     clock           = new AtomicLong();
+  private final LongAdder                      hits            = new LongAdder();
+  private final LongAdder                      misses          = new LongAdder();
+  private final LongAdder                      evictions       = new LongAdder();
+  /** The page that was returned last. This avoids the lookup on repeated access. */
+  private volatile Page                        last;
+
+  PageCache(final int capacity) {
+    if (capacity < 1)
+      throw new IllegalArgumentException("capacity = " + capacity);
+    this.capacity = capacity;
+    this.pages = new ConcurrentHashMap<>(Math.min(capacity, 1024) * 2);
+  }
+
+  /** Creates a cache with the {@link #getDefaultCapacity() default capacity}. */
+  PageCache() {
+    this(defaultCapacity);
+  }
+
+  /**
+   * The number of pages a new cache can hold, unless a capacity is given
+   * explicitly. The initial value is 64.
+   */
+  public static int getDefaultCapacity() {
+    return defaultCapacity;
+  }
+
+  /**
+   * Sets the number of pages a new cache can hold. This does not change
+   * existing caches.
+   *
+   * @param pages
+   *          number of pages, at least 1
+   */
+  public static void setDefaultCapacity(final int pages) {
+    if (pages < 1)
+      throw new IllegalArgumentException("pages = " + pages);
+    defaultCapacity = pages;
+  }
+
+  /** Returns the page, using the loader if it is not cached. */
+  char[] get(final int page, final Loader loader) throws IOException {
+    Page p = this.last;
+    if (p == null || p.number != page) {
+      p = this.pages.get(page);
+      if (p == null) {
+        this.misses.increment();
+        p = new Page(page, loader.load(page), this.clock.incrementAndGet());
+        this.put(p);
+        this.last = p;
+        return p.chars;
+      }
+      this.last = p;
+    }
+    this.hits.increment();
+    final long now = this.clock.get();
+    if (p.used != now)
+      p.used = now;
+    return p.chars;
+  }
+
+  private synchronized void put(final Page page) {
+    if (this.pages.put(page.number, page) != null)
+      return; // Another thread loaded the same page.
+    while (this.pages.size() > this.capacity) {
+      Page lru = null;
+      for (final Page p : this.pages.values()) {
+        if (lru == null || p.used < lru.used)
+          lru = p;
+      }
+      if (this.pages.remove(lru.number, lru))
+        this.evictions.increment();
+    }
+  }
+
+  /** Maximum number of pages. */
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  /** Number of pages currently cached. */
+  public int size() {
+    return this.pages.size();
+  }
+
+  /** Number of requests that were served from the cache. */
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  /** Number of requests that had to load a page. */
+  public long getMisses() {
+    return this.misses.sum();
+  }
+
+  /** Number of pages that were removed to make room for others. */
+  public long getEvictions() {
+    return this.evictions.sum();
+  }
+
+  /** Removes all pages. The counters are not reset. */
+  public synchronized void clear() {
+    this.pages.clear();
+    this.last = null;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("PageCache[size=%d, capacity=%d, hits=%d, misses=%d, evictions=%d]", this.size(),
+        this.capacity, this.getHits(), this.getMisses(), this.getEvictions());
+  }
+}
@@ -0,0 +1,224 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Searches a pattern in a large {@link CharSequence} by multiple threads of
+ * the {@link ForkJoinPool#commonPool() common pool}. All matches are found,
+ * including overlapping ones, and the results are always the same as those of
+ * a sequential search. The empty pattern occurs at every index, including the
+ * length of the text.
+ *
+ * <p>
+ * The text is divided into chunks, which are searched by
+ * {@link StringSearch}. Each chunk also contains the first <i>m-1</i>
+ * characters of the next chunk, so that matches that cross the edge are found
+ * exactly once. A {@link Concat} is divided at the boundaries of its parts and
+ * a {@link FileWrapper} at the boundaries of its pages, where possible.
+ *
+ * <p>
+ * Texts shorter than {@link #THRESHOLD} are searched sequentially. The text
+ * must not be modified during the search and it must support concurrent
+ * access, which is true for all wrappers of this library.
+ */
+public final class ParallelSearch {
+  private ParallelSearch() {
+    throw new RuntimeException("No instace for you!");
+  }
+
+  /** Texts shorter than this are searched by the current thread only. */
+  public static final int  THRESHOLD = 1 << 20;
+  /** Chunks are never smaller than this. */
+  private static final int MIN_CHUNK = 1 << 16;
+
+  /**
+   * Index of the first occurrence of the pattern in the text, or -1.
+   *
+   * @see String#indexOf(String)
+   */
+  public static int indexOf(final CharSequence text, final CharSequence pattern) {
+    requireNonNull(text, "text");
+    requireNonNull(pattern, "pattern");
+    if (pattern.length() > text.length())
+      return -1;
+    if (pattern.length() == 0)
+      return 0;
+    return new Operation<Integer>(text, pattern) {
+      @Override
+      Integer leaf(final int begin, final int end) {
+        final int i = this.search.indexOf(this.chunk(begin, end), 0);
+        return i < 0 ? -1 : begin + i;
+      }
+
+      @Override
+      boolean done(final Integer left) {
+        return left >= 0;
+      }
+
+      @Override
+      Integer combine(final Integer left, final Integer right) {
+        return right;
+      }
+    }.invoke();
+  }
+
+  /**
+   * Number of occurrences of the pattern in the text, including overlapping
+   * ones.
+   */
+  public static long count(final CharSequence text, final CharSequence pattern) {
+    requireNonNull(text, "text");
+    requireNonNull(pattern, "pattern");
+    if (pattern.length() > text.length())
+      return 0;
+    if (pattern.length() == 0)
+      return text.length() + 1L;
+    return new Operation<Long>(text, pattern) {
+      @Override
+      Long leaf(final int begin, final int end) {
+        final CharSequence chunk = this.chunk(begin, end);
+        long count = 0;
+        for (int i = this.search.indexOf(chunk, 0); i >= 0; i = this.search.indexOf(chunk, i + 1))
+          count++;
+        return count;
+      }
+
+      @Override
+      Long combine(final Long left, final Long right) {
+        return left + right;
+      }
+    }.invoke();
+  }
+
+  /**
+   * Indexes of all occurrences of the pattern in the text, including
+   * overlapping ones, in ascending order.
+   */
+  public static int[] findAll(final CharSequence text, final CharSequence pattern) {
+    requireNonNull(text, "text");
+    requireNonNull(pattern, "pattern");
+    if (pattern.length() > text.length())
+      return new int[0];
+    if (pattern.length() == 0)
+      return IntStream.rangeClosed(0, text.length()).toArray();
+    return new Operation<int[]>(text, pattern) {
+      @Override
+      int[] leaf(final int begin, final int end) {
+        int[] result = new int[16];
+        int size = 0;
+        final CharSequence chunk = this.chunk(begin, end);
+        for (int i = this.search.indexOf(chunk, 0); i >= 0; i = this.search.indexOf(chunk, i + 1)) {
+          if (size == result.length)
+            result = Arrays.copyOf(result, 2 * size);
+          result[size++] = begin + i;
+        }
+        return Arrays.copyOf(result, size);
+      }
+
+      @Override
+      int[] combine(final int[] left, final int[] right) {
+        final int[] result = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, result, left.length, right.length);
+        return result;
+      }
+    }.invoke();
+  }
+
+  /**
+   * Finds an index near the middle of the range, where the range of start
+   * indexes is split.
+   */
+  static int splitPoint(final CharSequence text, final int begin, final int end) {
+    if (text instanceof Concat)
+      return ((Concat) text).splitPoint(begin, end);
+    final int mid = (begin + end) >>> 1;
+    if (text instanceof FileWrapper) {
+      final int page = mid - mid % (FileWrapper.PAGE_SIZE / 2);
+      if (page > begin)
+        return page;
+    }
+    return mid;
+  }
+
+  /**
+   * What is searched in each chunk and how the results of two adjacent chunks
+   * are combined.
+   */
+  private static abstract class Operation<T> {
+    final CharSequence text;
+    final int          m;
+    final StringSearch search;
+
+    Operation(final CharSequence text, final CharSequence pattern) {
+      this.text = text;
+      this.m = pattern.length();
+      this.search = new StringSearch(pattern);
+    }
+
+    /** Searches the given range of start indexes in the current thread. */
+    abstract T leaf(int begin, int end);
+
+    /** Combines the results of two adjacent ranges. */
+    abstract T combine(T left, T right);
+
+    /** Checks if the result of the left range makes the right range irrelevant. */
+    boolean done(final T left) {
+      return false;
+    }
+
+    /**
+     * The part of the text that contains all matches that start in the range
+     * <code>[begin..end)</code>.
+     */
+    final CharSequence chunk(final int begin, final int end) {
+      return Substring.of(this.text, begin, end + this.m - 1);
+    }
+
+    final T invoke() {
+      final int n = this.text.length();
+      final int end = n - this.m + 1;
+      if (n < THRESHOLD)
+        return this.leaf(0, end);
+      final int chunk = Math.max(MIN_CHUNK, n / (4 * ForkJoinPool.getCommonPoolParallelism()));
+      return new Task<>(this, 0, end, chunk).invoke();
+    }
+  }
+
+  /** Searches a range of start indexes. */
+  private static final class Task<T> extends RecursiveTask<T> {
+    private static final long  serialVersionUID = 1L;
+    private final Operation<T> operation;
+    private final int          begin;
+    private final int          end;
+    /** Ranges up to this size are not split. */
+    private final int          chunk;
+
+    Task(final Operation<T> operation, final int begin, final int end, final int chunk) {
+      this.operation = operation;
+      this.begin = begin;
+      this.end = end;
+      this.chunk = chunk;
+    }
+
+    @Override
+    protected T compute() {
+      final Operation<T> op = this.operation;
+      if (this.end - this.begin <= this.chunk)
+        return op.leaf(this.begin, this.end);
+      final int mid = splitPoint(op.text, this.begin, this.end);
+      final Task<T> right = new Task<>(op, mid, this.end, this.chunk);
+      right.fork();
+      final T left = new Task<>(op, this.begin, mid, this.chunk).compute();
+      if (op.done(left)) {
+        right.cancel(false);
+        return left;
+      }
+      return op.combine(left, right.join());
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package ch.claude_martin.stringwrappers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded cache of compiled regular expressions, as they are used by
+ * {@link StringWrapper#split(String)} and {@link StringWrapper#matches(String)}.
+ * The least recently used pattern is removed when the cache is full.
+ */
+final class PatternCache {
+  private PatternCache() {
+    throw new RuntimeException("No instace for you!");
+  }
+
+  /** Maximum number of cached patterns. */
+  static final int                          CAPACITY = 64;
+
+  private static final Map<String, Pattern> CACHE    = new LinkedHashMap<String, Pattern>(CAPACITY, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Pattern> eldest) {
+      return this.size() > CAPACITY;
+    }
+  };
+
+  /**
+   * Returns the compiled pattern of the regular expression. The pattern is
+   * compiled without holding the lock, so that other threads are not blocked.
+   * Two threads might compile the same expression, but only one pattern is
+   * cached.
+   */
+  static Pattern get(final String regex) {
+    Pattern p;
+    synchronized (CACHE) {
+      p = CACHE.get(regex);
+    }
+    if (p != null)
+      return p;
+    final Pattern compiled = Pattern.compile(regex);
+    synchronized (CACHE) {
+      p = CACHE.putIfAbsent(regex, compiled);
+    }
+    return p == null ? compiled : p;
+  }
+
+  /**
+   * Returns the literal string of a regular expression that has no
+   * meta-characters, or null. A meta-character can be escaped by a backslash.
+   */
+  static String literal(final String regex) {
+    final StringBuilder sb = new StringBuilder(regex.length());
+    for (int i = 0; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (".$|()[]{}^?*+".indexOf(c) >= 0)
+        return null;
+      if (c == '\\') {
+        if (++i == regex.length())
+          return null;
+        c = regex.charAt(i);
+        // Escaped letters and digits have special meanings:
+        if (c < 128 && Character.isLetterOrDigit(c))
+          return null;
+      } else if (Character.isSurrogate(c)) {
+        return null;
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+}
@@ -16,13 +16,23 @@ public final class Reversed extends AbstractSourceWrapper {
     super(source);
   }
 
-  public static StringWrapper of(final CharSequence source) {
+  public static StringWrapper of(CharSequence source) {
     requireNonNull(source, "source");
     if (source.length() < 2)
       return NullWrapper.of(source);
+    source = NullWrapper.unwrap(source);
     if (source instanceof Reversed) {
       return NullWrapper.of(((Reversed) source).getSource());
     }
+    // Reverse below the mapping, so that it can cancel out with another
+    // Reversed:
+    if (source instanceof CharWrapper) {
+      final CharWrapper wrapper = (CharWrapper) source;
+      if (ComposedMapper.preservesSurrogates(wrapper.getMapper()))
+        return wrapper.rewrap(of(wrapper.getSource()));
+    }
+    if (source instanceof Rot13)
+      return Rot13.of(of(((Rot13) source).getSource()));
     return new Reversed(source);
   }
 
@@ -42,17 +52,68 @@ public final class Reversed extends AbstractSourceWrapper {
     return ch;
   }
 
+  /**
+   * Creates the substring from <i>begin</i> to <i>end</i> as the reverse of the
+   * mirrored range of the source. This is not possible if a surrogate at the
+   * edge of that range would need a character outside of the range.
+   *
+   * @return the substring or <code>null</code>.
+   */
+  StringWrapper mirror(final int begin, final int end) {
+    final CharSequence source = this.getSource();
+    final int length = source.length();
+    final int from = length - end;
+    final int to = length - begin;
+    if (to < length && Character.isHighSurrogate(source.charAt(to - 1)))
+      return null;
+    if (from > 0 && Character.isLowSurrogate(source.charAt(from)))
+      return null;
+    return of(Substring.of(source, from, to));
+  }
+
+  @Override
+  public void getChars(final int srcBegin, final int srcEnd, final char[] dst, int dstBegin) {
+    final CharSequence source = this.getSource();
+    final int length = source.length();
+    StringUtils.checkRange(srcBegin, srcEnd, length);
+    // Copy the mirrored range and one more char on each side, for the
+    // surrogates at the edges:
+    final int from = Math.max(0, length - srcEnd - 1);
+    final int to = Math.min(length, length - srcBegin + 1);
+    final char[] buf = new char[to - from];
+    StringUtils.getChars(source, from, to, buf, 0);
+    // Same as charAt:
+    for (int i = srcBegin; i < srcEnd; i++) {
+      final int l_i = length - i;
+      char ch = buf[l_i - 1 - from];
+      if (Character.isHighSurrogate(ch) && l_i < length) {
+        ch = buf[l_i - from];
+      } else if (Character.isLowSurrogate(ch) && l_i - 2 >= 0) {
+        ch = buf[l_i - 2 - from];
+      }
+      dst[dstBegin++] = ch;
+    }
+  }
+
   @Override
   public String toString() {
-    return new StringBuilder(this.getSource()).reverse().toString();
+    final CharSequence source = this.getSource();
+    final char[] chars = new char[source.length()];
+    StringUtils.getChars(source, 0, chars.length, chars, 0);
+    return new StringBuilder(chars.length).append(chars).reverse().toString();
+  }
+
+  @Override
+  CharPresence computePresence() {
+    return CharPresence.of(this.getSource());
   }
 
   @Override
   protected boolean canContain(final char chr) {
     final CharSequence src = this.getSource();
-    if (src instanceof AbstractStringWrapper)
-      return ((AbstractStringWrapper) src).canContain(chr);
-    return true;
+    if (src instanceof AbstractStringWrapper && !((AbstractStringWrapper) src).canContain(chr))
+      return false;
+    return super.canContain(chr);
   }
 
   @Override
@@ -8,19 +8,30 @@ public final class Rot13 extends AbstractSourceWrapper {
     super(source);
   }
 
-  public static StringWrapper of(final CharSequence source) {
+  public static StringWrapper of(CharSequence source) {
     requireNonNull(source, "source");
+    source = NullWrapper.unwrap(source);
     if (source instanceof Rot13)
       return NullWrapper.of(((Rot13) source).getSource());
     if (0 == source.length())
       return EmptyWrapper.INSTANCE;
+    if (CharWrapper.mapperOf(source) != null)
+      return CharWrapper.of(source, CharMapper.ROT13);
     return new Rot13(source);
   }
 
   @Override
   public char charAt(final int index) {
-    final char c = this.getSource().charAt(index);
-    return rotate(c);
+    return CharMapper.ROT13.map(this.getSource().charAt(index));
+  }
+
+  @Override
+  public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    StringUtils.getChars(this.getSource(), srcBegin, srcEnd, dst, dstBegin);
+    final int dstEnd = dstBegin + srcEnd - srcBegin;
+    for (int i = dstBegin; i < dstEnd; i++) {
+      dst[i] = CharMapper.ROT13.map(dst[i]);
+    }
   }
 
   public static char rotate(char c) {
@@ -39,9 +50,15 @@ public final class Rot13 extends AbstractSourceWrapper {
 
   @Override
   protected boolean canContain(final char chr) {
-    if (this.getSource() instanceof AbstractStringWrapper) {
-      return ((AbstractStringWrapper) this.getSource()).canContain(rotate(chr));
-    }
-    return true;
+    final CharSequence src = this.getSource();
+    if (src instanceof AbstractStringWrapper && !((AbstractStringWrapper) src).canContain(rotate(chr)))
+      return false;
+    return super.canContain(chr);
+  }
+
+  @Override
+  CharPresence computePresence() {
+    final CharPresence p = CharPresence.of(this.getSource()).map(CharMapper.ROT13);
+    return p != null ? p : super.computePresence();
   }
 }
@@ -0,0 +1,106 @@
+package ch.claude_martin.stringwrappers;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+
+/**
+ * Lazily splits a sequence into {@link Substring substrings}. Each piece is
+ * only searched when it is requested, so no list of all pieces is created.
+ *
+ * <p>
+ * Single characters, {@link CharMatcher matched characters} and regular
+ * expressions without meta-characters are searched directly, without
+ * {@link java.util.regex}. Other expressions are compiled once and then cached
+ * by {@link PatternCache}.
+ *
+ * <p>
+ * The pieces are the same as those of <code>Pattern.split(input, -1)</code>:
+ * Trailing empty pieces are included, but a match of length zero at the
+ * beginning does not create an empty piece.
+ *
+ * @see StringWrapper#splitIterator(String)
+ * @see StringWrapper#splitIterator(char)
+ * @see StringWrapper#splitIterator(CharMatcher)
+ */
+final class Splitter implements Iterator<StringWrapper> {
+  private final StringWrapper source;
+  private final int           length;
+  /** The separator, if it is a single character. */
+  private final char          chr;
+  /** The separators, if they are any matching character. */
+  private final CharMatcher   chars;
+  /** The separator, if it is a string. */
+  private final StringSearch  search;
+  private final int           separatorLength;
+  /** The matcher, if the separator is a regular expression. */
+  private final Matcher       matcher;
+  /** Start of the next piece, or -1 after the last. */
+  private int                 begin = 0;
+
+  private Splitter(final StringWrapper source, final char chr, final CharMatcher chars, final StringSearch search,
+      final int separatorLength, final Matcher matcher) {
+    this.source = source;
+    this.length = source.length();
+    this.chr = chr;
+    this.chars = chars;
+    this.search = search;
+    this.separatorLength = separatorLength;
+    this.matcher = matcher;
+  }
+
+  /** Splits at each occurrence of the character. */
+  static Splitter of(final StringWrapper source, final char chr) {
+    return new Splitter(source, chr, null, null, 1, null);
+  }
+
+  /** Splits at each matching character. */
+  static Splitter of(final StringWrapper source, final CharMatcher matcher) {
+    return new Splitter(source, '\0', matcher, null, 1, null);
+  }
+
+  /** Splits at each match of the regular expression. */
+  static Splitter of(final StringWrapper source, final String regex) {
+    final String literal = PatternCache.literal(regex);
+    if (literal != null && literal.length() == 1)
+      return of(source, literal.charAt(0));
+    if (literal != null && literal.length() > 1)
+      return new Splitter(source, '\0', null, new StringSearch(literal), literal.length(), null);
+    return new Splitter(source, '\0', null, null, 0, PatternCache.get(regex).matcher(source));
+  }
+
+  @Override
+  public boolean hasNext() {
+    return this.begin >= 0;
+  }
+
+  @Override
+  public StringWrapper next() {
+    final int b = this.begin;
+    if (b < 0)
+      throw new NoSuchElementException();
+    int start, end;
+    if (this.matcher != null) {
+      // Skip a match of length zero at the beginning:
+      boolean found;
+      while ((found = this.matcher.find()) && this.matcher.end() == 0)
+        continue;
+      start = found ? this.matcher.start() : -1;
+      end = found ? this.matcher.end() : -1;
+    } else {
+      if (this.search != null)
+        start = this.search.indexOf(this.source, b);
+      else if (this.chars != null)
+        start = BitSetMatcher.indexIn(this.chars, this.source, b);
+      else
+        start = this.source.indexOf(this.chr, b);
+      end = start + this.separatorLength;
+    }
+    if (start < 0) {
+      this.begin = -1;
+      return b == 0 ? this.source : Substring.of(this.source, b, this.length);
+    }
+    this.begin = end;
+    return Substring.of(this.source, b, start);
+  }
+}
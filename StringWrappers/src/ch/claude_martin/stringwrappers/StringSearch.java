@@ -0,0 +1,340 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+
+/**
+ * Searches a pattern in any {@link CharSequence}. The algorithm is chosen by
+ * the length of the pattern:
+ * <ul>
+ * <li>Short patterns are compared naively, after a scan for the first
+ * character.</li>
+ * <li>Patterns of medium length use Boyer-Moore-Horspool. The table of shifts
+ * only uses the lower 8 bits of each character, so characters that share those
+ * bits share the (smallest) shift.</li>
+ * <li>Long patterns use the Two-Way algorithm of Crochemore and Perrin, which
+ * never needs more than <i>2n</i> comparisons.</li>
+ * </ul>
+ * The text is copied in blocks by
+ * {@link StringUtils#getChars(CharSequence, int, int, char[], int)}, so
+ * wrappers that support bulk access are not read character by character.
+ * Searching backwards uses the naive algorithm or Horspool.
+ *
+ * @see StringWrapper#indexOf(CharSequence, int)
+ * @see StringWrapper#lastIndexOf(CharSequence, int)
+ */
+final class StringSearch {
+  /** Patterns up to this length are compared naively. */
+  static final int         NAIVE_MAX   = 8;
+  /** Patterns of at least this length use Two-Way. */
+  static final int         TWO_WAY_MIN = 64;
+  /** Number of characters of the text that are copied at once. */
+  private static final int BLOCK       = 8192;
+
+  private final char[]     pattern;
+  /** Shifts by the lower 8 bits of a character, for Horspool. */
+  private final int[]      shifts;
+  /** Position of the critical factorization, for Two-Way. */
+  private int              ell;
+  /** Period of the pattern, for Two-Way. */
+  private int              period;
+  /** True, if the right part of the factorization is periodic. */
+  private boolean          periodic;
+
+  /** Compiles the given pattern. */
+  StringSearch(final CharSequence pattern) {
+    final int m = pattern.length();
+    this.pattern = new char[m];
+    StringUtils.getChars(pattern, 0, m, this.pattern, 0);
+    if (m > NAIVE_MAX && m < TWO_WAY_MIN) {
+      this.shifts = new int[256];
+      Arrays.fill(this.shifts, m);
+      for (int j = 0; j < m - 1; j++)
+        this.shifts[this.pattern[j] & 0xFF] = m - 1 - j;
+    } else {
+      this.shifts = null;
+    }
+    if (m >= TWO_WAY_MIN)
+      this.factorize();
+  }
+
+  /**
+   * Index of the first occurrence of the pattern in the text, starting at the
+   * given index. This has the same semantics as
+   * {@link String#indexOf(String, int)}.
+   */
+  static int indexOf(final CharSequence text, final CharSequence pattern, int fromIndex) {
+    requireNonNull(text, "text");
+    requireNonNull(pattern, "pattern");
+    final int n = text.length();
+    final int m = pattern.length();
+    if (fromIndex < 0)
+      fromIndex = 0;
+    if (m == 0)
+      return Math.min(fromIndex, n);
+    if (m > n - fromIndex)
+      return -1;
+    if (text instanceof String)
+      return ((String) text).indexOf(pattern.toString(), fromIndex);
+    if (m == 1 && text instanceof StringWrapper)
+      return ((StringWrapper) text).indexOf(pattern.charAt(0), fromIndex);
+    return new StringSearch(pattern).indexOf(text, fromIndex);
+  }
+
+  /**
+   * Index of the last occurrence of the pattern in the text, that starts at the
+   * given index or before. This has the same semantics as
+   * {@link String#lastIndexOf(String, int)}.
+   */
+  static int lastIndexOf(final CharSequence text, final CharSequence pattern, final int fromIndex) {
+    requireNonNull(text, "text");
+    requireNonNull(pattern, "pattern");
+    final int n = text.length();
+    final int m = pattern.length();
+    if (fromIndex < 0)
+      return -1;
+    if (m == 0)
+      return Math.min(fromIndex, n);
+    if (m > n)
+      return -1;
+    if (text instanceof String)
+      return ((String) text).lastIndexOf(pattern.toString(), fromIndex);
+    return new StringSearch(pattern).lastIndexOf(text, fromIndex);
+  }
+
+  /** Searches the compiled pattern forward. */
+  int indexOf(final CharSequence text, final int fromIndex) {
+    final int n = text.length();
+    final int m = this.pattern.length;
+    final int from = Math.max(0, fromIndex);
+    if (m == 0)
+      return Math.min(from, n);
+    if (m > n - from)
+      return -1;
+    // The first blocks are small, in case the match is near.
+    final int max = BLOCK + m - 1;
+    char[] buf = new char[Math.min(n - from, Math.min(max, 64 + m - 1))];
+    for (int pos = from; pos <= n - m; pos += buf.length - m + 1) {
+      if (buf.length < max && pos > from)
+        buf = new char[Math.min(max, 2 * buf.length)];
+      final int len = Math.min(buf.length, n - pos);
+      StringUtils.getChars(text, pos, pos + len, buf, 0);
+      final int i = this.search(buf, len);
+      if (i >= 0)
+        return pos + i;
+    }
+    return -1;
+  }
+
+  /** Searches the compiled pattern backward. */
+  int lastIndexOf(final CharSequence text, final int fromIndex) {
+    final int n = text.length();
+    final int m = this.pattern.length;
+    if (fromIndex < 0)
+      return -1;
+    if (m == 0)
+      return Math.min(fromIndex, n);
+    final int last = Math.min(fromIndex, n - m);
+    if (last < 0)
+      return -1;
+    final int end = last + m;
+    final int[] back = this.backShifts();
+    final char[] buf = new char[Math.min(end, BLOCK + m - 1)];
+    for (int e = end; e >= m; e -= buf.length - m + 1) {
+      final int len = Math.min(buf.length, e);
+      StringUtils.getChars(text, e - len, e, buf, 0);
+      final int i = this.searchLast(buf, len, back);
+      if (i >= 0)
+        return e - len + i;
+    }
+    return -1;
+  }
+
+  /** First match in <code>t[0..len)</code>, or -1. */
+  private int search(final char[] t, final int len) {
+    final int m = this.pattern.length;
+    if (m <= NAIVE_MAX)
+      return this.naive(t, len);
+    if (m < TWO_WAY_MIN)
+      return this.horspool(t, len);
+    return this.twoWay(t, len);
+  }
+
+  /** Shifts for Horspool backwards, or null if the pattern is short. */
+  private int[] backShifts() {
+    final char[] p = this.pattern;
+    final int m = p.length;
+    if (m <= NAIVE_MAX)
+      return null;
+    final int[] s = new int[256];
+    Arrays.fill(s, m);
+    for (int j = m - 1; j > 0; j--)
+      s[p[j] & 0xFF] = j;
+    return s;
+  }
+
+  /** Last match in <code>t[0..len)</code>, or -1. */
+  private int searchLast(final char[] t, final int len, final int[] back) {
+    final char[] p = this.pattern;
+    final int m = p.length;
+    final char first = p[0];
+    if (m <= NAIVE_MAX) {
+      outer: for (int i = len - m; i >= 0; i--) {
+        if (t[i] != first)
+          continue;
+        for (int j = 1; j < m; j++)
+          if (t[i + j] != p[j])
+            continue outer;
+        return i;
+      }
+      return -1;
+    }
+    int i = len - m;
+    while (i >= 0) {
+      final char c = t[i];
+      if (c == first && matches(p, t, i, 1, m))
+        return i;
+      i -= back[c & 0xFF];
+    }
+    return -1;
+  }
+
+  private int naive(final char[] t, final int len) {
+    final char[] p = this.pattern;
+    final int m = p.length;
+    final char first = p[0];
+    final int max = len - m;
+    for (int i = 0; i <= max; i++) {
+      if (t[i] != first)
+        continue;
+      if (matches(p, t, i, 1, m))
+        return i;
+    }
+    return -1;
+  }
+
+  private int horspool(final char[] t, final int len) {
+    final char[] p = this.pattern;
+    final int m = p.length;
+    final char lastChar = p[m - 1];
+    final int[] s = this.shifts;
+    final int max = len - m;
+    int i = 0;
+    while (i <= max) {
+      final char c = t[i + m - 1];
+      if (c == lastChar && matches(p, t, i, 0, m - 1))
+        return i;
+      i += s[c & 0xFF];
+    }
+    return -1;
+  }
+
+  /** Compares <code>p[from..to)</code> with the text at offset <i>i</i>. */
+  private static boolean matches(final char[] p, final char[] t, final int i, final int from, final int to) {
+    for (int j = from; j < to; j++)
+      if (t[i + j] != p[j])
+        return false;
+    return true;
+  }
+
+  /** Computes the critical factorization of the pattern for Two-Way. */
+  private void factorize() {
+    final char[] x = this.pattern;
+    final int m = x.length;
+    final int[] p = new int[1];
+    final int[] q = new int[1];
+    final int i = maxSuffix(x, false, p);
+    final int j = maxSuffix(x, true, q);
+    if (i > j) {
+      this.ell = i;
+      this.period = p[0];
+    } else {
+      this.ell = j;
+      this.period = q[0];
+    }
+    final int per = this.period;
+    boolean periodic = this.ell + 1 + per <= m;
+    for (int k = 0; periodic && k <= this.ell; k++)
+      periodic = x[k] == x[k + per];
+    this.periodic = periodic;
+    if (!periodic)
+      this.period = Math.max(this.ell + 1, m - this.ell - 1) + 1;
+  }
+
+  /**
+   * Position before the maximal suffix of x, by the given order. The period of
+   * that suffix is stored in <code>period[0]</code>.
+   */
+  private static int maxSuffix(final char[] x, final boolean reverse, final int[] period) {
+    final int m = x.length;
+    int ms = -1, j = 0, k = 1, p = 1;
+    while (j + k < m) {
+      final char a = x[j + k];
+      final char b = x[ms + k];
+      if (reverse ? a > b : a < b) {
+        j += k;
+        k = 1;
+        p = j - ms;
+      } else if (a == b) {
+        if (k != p) {
+          ++k;
+        } else {
+          j += p;
+          k = 1;
+        }
+      } else {
+        ms = j;
+        j = ms + 1;
+        k = p = 1;
+      }
+    }
+    period[0] = p;
+    return ms;
+  }
+
+  private int twoWay(final char[] y, final int n) {
+    final char[] x = this.pattern;
+    final int m = x.length;
+    final int ell = this.ell;
+    final int per = this.period;
+    int j = 0;
+    if (this.periodic) {
+      int memory = -1;
+      while (j <= n - m) {
+        int i = Math.max(ell, memory) + 1;
+        while (i < m && x[i] == y[i + j])
+          ++i;
+        if (i >= m) {
+          i = ell;
+          while (i > memory && x[i] == y[i + j])
+            --i;
+          if (i <= memory)
+            return j;
+          j += per;
+          memory = m - per - 1;
+        } else {
+          j += i - ell;
+          memory = -1;
+        }
+      }
+    } else {
+      while (j <= n - m) {
+        int i = ell + 1;
+        while (i < m && x[i] == y[i + j])
+          ++i;
+        if (i >= m) {
+          i = ell;
+          while (i >= 0 && x[i] == y[i + j])
+            --i;
+          if (i < 0)
+            return j;
+          j += per;
+        } else {
+          j += i - ell;
+        }
+      }
+    }
+    return -1;
+  }
+}
@@ -4,10 +4,11 @@ import static java.util.Objects.requireNonNull;
 
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
-import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
 import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -63,6 +64,53 @@ public final class StringUtils {
     return new CharArrayWrapper(c);
   }
 
+  /**
+   * Checks that <i>begin</i> and <i>end</i> define a valid range of a sequence
+   * of the given length.
+   */
+  static void checkRange(final int begin, final int end, final int length) {
+    if (begin < 0)
+      throw new StringIndexOutOfBoundsException(begin);
+    if (end > length)
+      throw new StringIndexOutOfBoundsException(end);
+    if (begin > end)
+      throw new StringIndexOutOfBoundsException(end - begin);
+  }
+
+  /**
+   * Copies characters from any character sequence into the destination
+   * character array. This uses the bulk operation of {@link String},
+   * {@link StringWrapper}, {@link StringBuilder}, {@link StringBuffer} and
+   * {@link CharBuffer}.
+   *
+   * @see String#getChars(int, int, char[], int)
+   * @see StringWrapper#getChars(int, int, char[], int)
+   */
+  public static void getChars(final CharSequence s, final int srcBegin, final int srcEnd, final char[] dst,
+      int dstBegin) {
+    requireNonNull(s, "s");
+    requireNonNull(dst, "dst");
+    if (s instanceof String) {
+      ((String) s).getChars(srcBegin, srcEnd, dst, dstBegin);
+    } else if (s instanceof StringWrapper) {
+      ((StringWrapper) s).getChars(srcBegin, srcEnd, dst, dstBegin);
+    } else if (s instanceof StringBuilder) {
+      ((StringBuilder) s).getChars(srcBegin, srcEnd, dst, dstBegin);
+    } else if (s instanceof StringBuffer) {
+      ((StringBuffer) s).getChars(srcBegin, srcEnd, dst, dstBegin);
+    } else if (s instanceof CharBuffer) {
+      checkRange(srcBegin, srcEnd, s.length());
+      final CharBuffer buf = ((CharBuffer) s).duplicate();
+      buf.position(buf.position() + srcBegin);
+      buf.get(dst, dstBegin, srcEnd - srcBegin);
+    } else {
+      checkRange(srcBegin, srcEnd, s.length());
+      for (int i = srcBegin; i < srcEnd; i++) {
+        dst[dstBegin++] = s.charAt(i);
+      }
+    }
+  }
+
   /** Quick check if both are the same strings. */
   static boolean same(final CharSequence a, final CharSequence b) {
     if (a == b)
@@ -169,18 +217,82 @@ public final class StringUtils {
     if (same(a, b))
       return true;
 
-    int n = a.length();
-    if (n == b.length()) {
-      int i = 0;
-      while (n-- != 0) {
+    final int n = a.length();
+    if (n != b.length())
+      return false;
+    if (a instanceof String && b instanceof String)
+      return a.equals(b);
+    if (a instanceof CharArrayWrapper || a instanceof ByteArrayWrapper) {
+      if (b instanceof CharArrayWrapper || b instanceof ByteArrayWrapper)
+        return arrayMismatch(a, b, n) < 0;
+    }
+    if (n <= 64) {
+      // Short sequences, such as tokens, are compared without allocation:
+      for (int i = 0; i < n; i++) {
         if (a.charAt(i) != b.charAt(i))
           return false;
-        i++;
       }
       return true;
     }
 
-    return false;
+    // Compare chunks, so that the sequences are copied in bulk:
+    final int chunk = Math.min(n, 512);
+    final char[] x = new char[chunk];
+    final char[] y = new char[chunk];
+    for (int i = 0; i < n; i += chunk) {
+      final int end = Math.min(n, i + chunk);
+      getChars(a, i, end, x, 0);
+      getChars(b, i, end, y, 0);
+      for (int j = end - i - 1; j >= 0; j--) {
+        if (x[j] != y[j])
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /** Compares two wrappers of arrays directly, by {@link ArrayKernels}. */
+  private static int arrayMismatch(final CharSequence a, final CharSequence b, final int n) {
+    if (a instanceof CharArrayWrapper) {
+      final CharArrayWrapper x = (CharArrayWrapper) a;
+      if (b instanceof CharArrayWrapper) {
+        final CharArrayWrapper y = (CharArrayWrapper) b;
+        return ArrayKernels.mismatch(x.chars, x.offset(), y.chars, y.offset(), n);
+      }
+      final ByteArrayWrapper y = (ByteArrayWrapper) b;
+      return ArrayKernels.mismatch(y.bytes, y.offset(), x.chars, x.offset(), n);
+    }
+    final ByteArrayWrapper x = (ByteArrayWrapper) a;
+    if (b instanceof ByteArrayWrapper) {
+      final ByteArrayWrapper y = (ByteArrayWrapper) b;
+      return ArrayKernels.mismatch(x.bytes, x.offset(), y.bytes, y.offset(), n);
+    }
+    final CharArrayWrapper y = (CharArrayWrapper) b;
+    return ArrayKernels.mismatch(x.bytes, x.offset(), y.chars, y.offset(), n);
+  }
+
+  /** Checks if all characters are Latin-1 (not greater than 0xFF). */
+  static boolean isLatin1(final CharSequence s) {
+    if (s instanceof ByteArrayWrapper || s == EmptyWrapper.INSTANCE)
+      return true;
+    final int length = s.length();
+    if (s instanceof CharArrayWrapper) {
+      final CharArrayWrapper w = (CharArrayWrapper) s;
+      return ArrayKernels.indexOfNonLatin1(w.chars, w.offset(), w.offset() + length) < 0;
+    }
+    if (s instanceof AbstractStringWrapper) {
+      final CharPresence p = ((AbstractStringWrapper) s).cachedPresence();
+      if (p != null && !p.hasOther())
+        return true;
+    }
+    final char[] buf = new char[Math.min(length, 512)];
+    for (int i = 0; i < length; i += buf.length) {
+      final int n = Math.min(buf.length, length - i);
+      getChars(s, i, i + n, buf, 0);
+      if (ArrayKernels.indexOfNonLatin1(buf, 0, n) >= 0)
+        return false;
+    }
+    return true;
   }
 
   /**
@@ -192,34 +304,139 @@ public final class StringUtils {
    * @return a hash code
    */
   public static int hashCode(final CharSequence s) {
-    final int length = s.length();
-    int h = 0;
-    for (int i = 0; i < length; i++) {
-      h = 31 * h + s.charAt(i);
+    if (s instanceof String)
+      return s.hashCode();
+    if (s instanceof StringWrapper)
+      return ((StringWrapper) s).contentHash();
+    return hash(0, s, 0, s.length());
+  }
+
+  /**
+   * Continues the polynomial hash <i>h</i> with the characters of the given
+   * range.
+   *
+   * @see #hashCode(CharSequence)
+   */
+  static int hash(int h, final CharSequence s, final int begin, final int end) {
+    if (end - begin <= 64) {
+      for (int i = begin; i < end; i++)
+        h = 31 * h + s.charAt(i);
+      return h;
+    }
+    final char[] buf = new char[512];
+    for (int i = begin; i < end; i += buf.length) {
+      final int n = Math.min(buf.length, end - i);
+      getChars(s, i, i + n, buf, 0);
+      for (int j = 0; j < n; j++)
+        h = 31 * h + buf[j];
     }
     return h;
   }
 
+  /** <code>31<sup>2<sup>k</sup></sup></code>, for all bits k of an int. */
+  private static final int[] POW31 = new int[31];
+  static {
+    POW31[0] = 31;
+    for (int k = 1; k < POW31.length; k++)
+      POW31[k] = POW31[k - 1] * POW31[k - 1];
+  }
+
+  /**
+   * <code>31<sup>n</sup></code>, as it is used to combine hash codes. If
+   * <i>a</i> has the hash code <i>h(a)</i>, then the concatenation of <i>a</i>
+   * and <i>b</i> has the hash code <code>h(a) * 31<sup>b.length()</sup> +
+   * h(b)</code>.
+   */
+  static int pow31(int n) {
+    int result = 1;
+    for (int k = 0; n != 0; k++, n >>>= 1)
+      if ((n & 1) != 0)
+        result *= POW31[k];
+    return result;
+  }
+
+  /**
+   * Estimated memory that is retained by the given sequence, in chars or in
+   * bytes.
+   *
+   * @see StringWrapper#retainedChars()
+   */
+  static long retained(final CharSequence s, final boolean bytes) {
+    final long chars;
+    if (s instanceof AbstractStringWrapper)
+      return ((AbstractStringWrapper) s).retained(bytes);
+    else if (s == EmptyWrapper.INSTANCE)
+      return 0L;
+    else if (s instanceof StringBuilder)
+      chars = ((StringBuilder) s).capacity();
+    else if (s instanceof StringBuffer)
+      chars = ((StringBuffer) s).capacity();
+    else
+      chars = s.length();
+    return bytes ? 2 * chars : chars;
+  }
+
+  /**
+   * Copies the given range into a new array. The copy is a
+   * {@link ByteArrayWrapper} if all characters are Latin-1, otherwise a
+   * {@link CharArrayWrapper}.
+   */
+  static StringWrapper copyOf(final CharSequence s, final int begin, final int end) {
+    checkRange(begin, end, s.length());
+    final int length = end - begin;
+    if (length == 0)
+      return empty();
+    return new CompactBuilder(length).append(s, begin, end).build();
+  }
+
+  /**
+   * Checks if the content of the given sequence can never change. Only then
+   * its hash code can be cached.
+   */
+  static boolean isImmutable(final CharSequence s) {
+    if (s instanceof String || s == EmptyWrapper.INSTANCE)
+      return true;
+    if (s instanceof AbstractStringWrapper)
+      return ((AbstractStringWrapper) s).isImmutable();
+    return false;
+  }
+
   public static byte[] getBytes(final CharSequence s, final Charset charset) {
     requireNonNull(s, "s");
     requireNonNull(charset, "charset");
-    if (s.length() == 0)
+    final int length = s.length();
+    if (length == 0)
       return new byte[0];
+    if (StandardCharsets.ISO_8859_1.equals(charset) && isLatin1(s))
+      return ASCII.toASCII(s, (byte) '?', true);
     final CharsetEncoder ce = charset.newEncoder();
-    final int maxLen = (int) (s.length() * (double) ce.maxBytesPerChar());
+    final int maxLen = (int) (length * (double) ce.maxBytesPerChar());
     final byte[] ba = new byte[maxLen];
+    final ByteBuffer out = ByteBuffer.wrap(ba);
 
     ce.onMalformedInput(CodingErrorAction.REPLACE)//
         .onUnmappableCharacter(CodingErrorAction.REPLACE)//
         .reset();
-    try {
-      final ByteBuffer buffer = ce.encode(CharBuffer.wrap(s));
-      if (buffer.position() == ba.length)
-        return ba;
-      return Arrays.copyOf(ba, buffer.position());
-    } catch (final CharacterCodingException x) {
-      throw new Error(x);
-    }
+    // Encode chunks, so that the sequence is copied in bulk. The encoder leaves
+    // a high surrogate at the end of a chunk in the buffer.
+    final CharBuffer in = CharBuffer.allocate(Math.min(length, 8192));
+    in.limit(0);
+    int pos = 0;
+    do {
+      in.compact();
+      final int n = Math.min(in.remaining(), length - pos);
+      getChars(s, pos, pos + n, in.array(), in.position());
+      in.position(in.position() + n);
+      pos += n;
+      in.flip();
+      final CoderResult cr = ce.encode(in, out, pos == length);
+      if (cr.isError() || cr.isOverflow())
+        throw new Error(cr.toString());
+    } while (pos < length);
+    ce.flush(out);
+    if (out.position() == ba.length)
+      return ba;
+    return Arrays.copyOf(ba, out.position());
   }
 
   public static Iterator<Character> iterator(final CharSequence s) {
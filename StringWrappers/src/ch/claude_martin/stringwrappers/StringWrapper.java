@@ -6,8 +6,9 @@ import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.text.CharacterIterator;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This is the common interface of all wrapper classes. This extends
@@ -52,33 +53,30 @@ public interface StringWrapper extends CharSequence, Iterable<Character> {
   }
 
   default StringWrapper trim(final char chr, final char... more) {
-    final Set<Character> set = new TreeSet<>();
-    set.add(chr);
-    for (final Character c : more) {
-      set.add(c);
-    }
-    return this.trim(set);
+    final char[] chars = Arrays.copyOf(more, more.length + 1);
+    chars[more.length] = chr;
+    return this.trim(CharMatcher.anyOf(chars));
   }
 
   default StringWrapper trim(final Collection<Character> chars) {
-    Set<Character> set;
-    if (chars instanceof Set)
-      set = (Set<Character>) chars;
-    else
-      set = new TreeSet<>(chars);
+    return this.trim(CharMatcher.anyOf(chars));
+  }
 
+  /** Removes all matching characters at the beginning and the end. */
+  default StringWrapper trim(final CharMatcher matcher) {
+    final CharMatcher m = requireNonNull(matcher, "matcher");
     int begin = 0;
     int end = this.length();
 
-    while (begin < end && set.contains(this.charAt(begin))) {
+    while (begin < end && m.matches(this.charAt(begin))) {
       begin++;
     }
 
-    while (begin < end && set.contains(this.charAt(end - 1))) {
+    while (begin < end && m.matches(this.charAt(end - 1))) {
       end--;
     }
 
-    return Substring.of(this, begin, end);
+    return ((begin > 0) || (end < this.length())) ? Substring.of(this, begin, end) : this;
   }
 
   default StringWrapper concat(final CharSequence... s) {
@@ -90,6 +88,65 @@ public interface StringWrapper extends CharSequence, Iterable<Character> {
     return CharWrapper.of(this, mapper);
   }
 
+  /**
+   * Copies the content once it is accessed often enough, using the
+   * {@link FlattenPolicy#DEFAULT default} policy. The content must not change.
+   *
+   * @see Memoized
+   */
+  default StringWrapper memoize() {
+    return Memoized.of(this);
+  }
+
+  /**
+   * Copies the content once the given policy says so. The content must not
+   * change.
+   *
+   * @see Memoized
+   */
+  default StringWrapper memoize(final FlattenPolicy policy) {
+    return Memoized.of(this, policy);
+  }
+
+  /**
+   * Estimated number of chars that are kept in memory by this wrapper and all
+   * of its sources. A {@link Substring} retains its whole source. Sources that
+   * are used more than once are also counted more than once. Content that is
+   * computed, such as that of an {@link EndlessString}, is not counted.
+   *
+   * @see #compact()
+   */
+  default long retainedChars() {
+    return StringUtils.retained(this, false);
+  }
+
+  /**
+   * Estimated number of bytes that are kept in memory by this wrapper and all
+   * of its sources. Like {@link #retainedChars()}, but Latin-1 arrays only need
+   * one byte per char.
+   */
+  default long retainedBytes() {
+    return StringUtils.retained(this, true);
+  }
+
+  /**
+   * Copies the characters into a new array, so that no source is retained. The
+   * copy uses one byte per char if all characters are Latin-1.
+   *
+   * @see CompactBuilder
+   */
+  default StringWrapper detach() {
+    return StringUtils.copyOf(this, 0, this.length());
+  }
+
+  /**
+   * Returns a {@link #detach() copy} if this retains more chars than it
+   * contains. Otherwise this is returned.
+   */
+  default StringWrapper compact() {
+    return this.retainedChars() > this.length() ? this.detach() : this;
+  }
+
   default StringWrapper substring(final int begin, final int end) {
     return Substring.of(this, begin, end);
   }
@@ -99,33 +156,87 @@ public interface StringWrapper extends CharSequence, Iterable<Character> {
     return this.substring(start, end);
   }
 
+  /**
+   * Splits this string around matches of the given regular expression. Unlike
+   * {@link String#split(String)} trailing empty strings are included.
+   *
+   * @see #splitIterator(String)
+   */
   default List<StringWrapper> split(final String regexp) {
     final List<StringWrapper> list = new ArrayList<>();
-    final Matcher m = Pattern.compile(regexp).matcher(this);
-    while (m.find()) {
-      list.add(this.substring(m.start(), m.end()));
-    }
+    this.splitIterator(regexp).forEachRemaining(list::add);
     return list;
   }
 
+  /** Splits this string around each occurrence of the given character. */
   default List<StringWrapper> split(final char chr) {
-    int off = 0;
-    int next = 0;
-    final ArrayList<StringWrapper> list = new ArrayList<>();
-    while ((next = this.indexOf(chr, off)) != -1) {
-      list.add(this.substring(off, next));
-      off = next + 1;
-    }
-    if (off == 0)
-      list.add(this);
-    else
-      list.add(this.substring(off, this.length()));
+    final List<StringWrapper> list = new ArrayList<>();
+    this.splitIterator(chr).forEachRemaining(list::add);
+    return list;
+  }
+
+  /**
+   * Lazily splits this string around matches of the given regular expression.
+   * Each piece is a {@link Substring} and only searched when it is requested.
+   * Expressions without meta-characters are searched without
+   * {@link java.util.regex}, all others are compiled once and cached.
+   *
+   * @see #split(String)
+   */
+  default Iterator<StringWrapper> splitIterator(final String regexp) {
+    requireNonNull(regexp, "regexp");
+    return Splitter.of(this, regexp);
+  }
 
+  /** Lazily splits this string around each occurrence of the given character. */
+  default Iterator<StringWrapper> splitIterator(final char chr) {
+    return Splitter.of(this, chr);
+  }
+
+  /** Splits this string around each matching character. */
+  default List<StringWrapper> split(final CharMatcher matcher) {
+    final List<StringWrapper> list = new ArrayList<>();
+    this.splitIterator(matcher).forEachRemaining(list::add);
     return list;
   }
 
+  /** Lazily splits this string around each matching character. */
+  default Iterator<StringWrapper> splitIterator(final CharMatcher matcher) {
+    requireNonNull(matcher, "matcher");
+    return Splitter.of(this, matcher);
+  }
+
+  /**
+   * Lazily splits this string around matches of the given regular expression.
+   *
+   * @see #splitIterator(String)
+   */
+  default Stream<StringWrapper> splitStream(final String regexp) {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(this.splitIterator(regexp), Spliterator.ORDERED | Spliterator.NONNULL),
+        false);
+  }
+
+  /** Lazily splits this string around each occurrence of the given character. */
+  default Stream<StringWrapper> splitStream(final char chr) {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(this.splitIterator(chr), Spliterator.ORDERED | Spliterator.NONNULL),
+        false);
+  }
+
+  /** Lazily splits this string around each matching character. */
+  default Stream<StringWrapper> splitStream(final CharMatcher matcher) {
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(this.splitIterator(matcher), Spliterator.ORDERED | Spliterator.NONNULL),
+        false);
+  }
+
+  /**
+   * Tells whether this string matches the given regular expression. The
+   * compiled expression is cached.
+   */
   default boolean matches(final String regex) {
-    return Pattern.matches(regex, this);
+    return PatternCache.get(regex).matcher(this).matches();
   }
 
   /**
@@ -151,6 +262,17 @@ public interface StringWrapper extends CharSequence, Iterable<Character> {
     return StringUtils.equals(this, cs);
   }
 
+  /**
+   * Returns a hash code for the content of this sequence. This is the same as
+   * the hash code of a {@link String} with the same content. Note that
+   * {@link #hashCode()} is based on identity.
+   *
+   * @see StringUtils#hashCode(CharSequence)
+   */
+  default int contentHash() {
+    return StringUtils.hash(0, this, 0, this.length());
+  }
+
   /**
    * Encodes this {@code StringWrapper} into a sequence of bytes using the given
    * {@linkplain java.nio.charset.Charset charset}, storing the result into a
@@ -168,6 +290,29 @@ public interface StringWrapper extends CharSequence, Iterable<Character> {
     return StringUtils.getBytes(this, charset);
   }
 
+  /**
+   * Copies characters from this sequence into the destination character array.
+   * Implementations should copy in bulk, instead of calling
+   * {@link #charAt(int)} for each character.
+   *
+   * @param srcBegin
+   *          index of the first character in the sequence to copy.
+   * @param srcEnd
+   *          index after the last character in the sequence to copy.
+   * @param dst
+   *          the destination array.
+   * @param dstBegin
+   *          the start offset in the destination array.
+   * @see String#getChars(int, int, char[], int)
+   * @see StringUtils#getChars(CharSequence, int, int, char[], int)
+   */
+  default void getChars(final int srcBegin, final int srcEnd, final char[] dst, int dstBegin) {
+    StringUtils.checkRange(srcBegin, srcEnd, this.length());
+    for (int i = srcBegin; i < srcEnd; i++) {
+      dst[dstBegin++] = this.charAt(i);
+    }
+  }
+
   default boolean isEmpty() {
     return this.length() == 0;
   }
@@ -209,6 +354,28 @@ public interface StringWrapper extends CharSequence, Iterable<Character> {
     return StringWrapperCharIterator.of(this);
   }
 
+  /**
+   * Returns a stream of the characters of this sequence. The stream can be
+   * {@link IntStream#parallel() parallel}, because the spliterator is split by
+   * index.
+   */
+  @Override
+  default IntStream chars() {
+    return StreamSupport.intStream(() -> CharSpliterator.chars(this), CharSpliterator.characteristics(this, false),
+        false);
+  }
+
+  /**
+   * Returns a stream of the code points of this sequence. The stream can be
+   * {@link IntStream#parallel() parallel}, because the spliterator is split by
+   * index. Surrogate pairs are never split.
+   */
+  @Override
+  default IntStream codePoints() {
+    return StreamSupport.intStream(() -> CharSpliterator.codePoints(this), CharSpliterator.characteristics(this, true),
+        false);
+  }
+
   /**
    * Iterate over all Characters using a {@link CharacterIterator}.
    *
@@ -306,6 +473,66 @@ public interface StringWrapper extends CharSequence, Iterable<Character> {
     return -1;
   }
 
+  /**
+   * Returns the index of the first occurrence of the given sequence.
+   *
+   * @see String#indexOf(String)
+   */
+  default int indexOf(final CharSequence s) {
+    return this.indexOf(s, 0);
+  }
+
+  /**
+   * Returns the index of the first occurrence of the given sequence, starting
+   * at the specified index. The algorithm depends on the length of the
+   * sequence.
+   *
+   * @see String#indexOf(String, int)
+   */
+  default int indexOf(final CharSequence s, final int fromIndex) {
+    return StringSearch.indexOf(this, s, fromIndex);
+  }
+
+  /** Returns the index of the first matching character. */
+  default int indexOf(final CharMatcher matcher) {
+    return this.indexOf(matcher, 0);
+  }
+
+  /**
+   * Returns the index of the first matching character, starting at the
+   * specified index.
+   */
+  default int indexOf(final CharMatcher matcher, final int fromIndex) {
+    requireNonNull(matcher, "matcher");
+    return BitSetMatcher.indexIn(matcher, this, fromIndex);
+  }
+
+  /** Returns the index of the last matching character. */
+  default int lastIndexOf(final CharMatcher matcher) {
+    return this.lastIndexOf(matcher, this.length() - 1);
+  }
+
+  /**
+   * Returns the index of the last matching character, searching backward
+   * starting at the specified index. The index is counted from the beginning,
+   * as in {@link String#lastIndexOf(int, int)}.
+   */
+  default int lastIndexOf(final CharMatcher matcher, final int fromIndex) {
+    requireNonNull(matcher, "matcher");
+    return BitSetMatcher.lastIndexIn(matcher, this, fromIndex);
+  }
+
+  /** Counts the matching characters. */
+  default int countMatches(final CharMatcher matcher) {
+    requireNonNull(matcher, "matcher");
+    return BitSetMatcher.countIn(matcher, this);
+  }
+
+  /** Checks if this contains the given sequence. */
+  default boolean contains(final CharSequence s) {
+    return this.indexOf(s, 0) >= 0;
+  }
+
   default int lastIndexOf(final int codePoint) {
     return this.lastIndexOf(codePoint, 0);
   }
@@ -328,4 +555,23 @@ public interface StringWrapper extends CharSequence, Iterable<Character> {
     return -1;
   }
 
+  /**
+   * Returns the index of the last occurrence of the given sequence.
+   *
+   * @see String#lastIndexOf(String)
+   */
+  default int lastIndexOf(final CharSequence s) {
+    return this.lastIndexOf(s, this.length());
+  }
+
+  /**
+   * Returns the index of the last occurrence of the given sequence, searching
+   * backward starting at the specified index. Unlike
+   * {@link #lastIndexOf(char, int)} the index is counted from the beginning,
+   * as in {@link String#lastIndexOf(String, int)}.
+   */
+  default int lastIndexOf(final CharSequence s, final int fromIndex) {
+    return StringSearch.lastIndexOf(this, s, fromIndex);
+  }
+
 }
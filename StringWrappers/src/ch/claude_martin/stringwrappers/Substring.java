@@ -10,6 +10,20 @@ import static java.util.Objects.requireNonNull;
  *
  * The source doesn't have to be immutable, but shouldn't be altered while a
  * Substring is used on it.
+ *
+ * <p>
+ * The factory methods push the substring down into the source where possible,
+ * so that chains of wrappers stay short: A substring of a substring is a
+ * substring of the original source, a substring of a {@link Concat} only
+ * contains the overlapping parts, a substring of a {@link Reversed} is the
+ * reverse of the mirrored range, and a substring of a {@link CharWrapper} or
+ * {@link Rot13} maps a substring of its source.
+ *
+ * <p>
+ * Use {@link StringWrapper#retainedChars()} to see how much is retained,
+ * {@link StringWrapper#compact()} to copy a substring that retains too much,
+ * and {@link #of(CharSequence, int, int, double)} to copy a short substring
+ * instead of creating a view.
  */
 public final class Substring extends AbstractSourceWrapper {
   /** The start index, inclusive. */
@@ -34,13 +48,53 @@ public final class Substring extends AbstractSourceWrapper {
     this.end = end;
   }
 
+  /**
+   * Substring from <i>begin</i> to <i>end</i>. This is a copy if it is shorter
+   * than the given fraction of the length of the source, so that the source is
+   * not retained. Only immutable sources are copied. A view of a mutable
+   * source, such as a {@link StringBuilder}, would show later changes.
+   *
+   * @param detachRatio
+   *          from 0 (never copy) to 1 (always copy)
+   * @see StringWrapper#detach()
+   */
+  public static StringWrapper of(final CharSequence source, final int begin, final int end,
+      final double detachRatio) {
+    requireNonNull(source, "source");
+    if (!(detachRatio >= 0.0 && detachRatio <= 1.0))
+      throw new IllegalArgumentException("detachRatio = " + detachRatio);
+    StringUtils.checkRange(begin, end, source.length());
+    if (begin < end && end - begin < detachRatio * source.length() && StringUtils.isImmutable(source))
+      return StringUtils.copyOf(source, begin, end);
+    return of(source, begin, end);
+  }
+
+  /** Substring from <i>begin</i> to <i>end</i>. This never copies. */
   public static StringWrapper of(final CharSequence source, final int begin, final int end) {
     requireNonNull(source, "source");
     if (begin == 0 && end == source.length())
       return NullWrapper.of(source);
+    StringUtils.checkRange(begin, end, source.length());
+    if (begin == end)
+      return EmptyWrapper.INSTANCE;
     if (source instanceof Substring) {
       final Substring substr = (Substring) source;
-      new Substring(substr.getSource(), substr.getBegin() + begin, substr.getBegin() + end);
+      return of(substr.getSource(), substr.getBegin() + begin, substr.getBegin() + end);
+    }
+    if (source instanceof NullWrapper)
+      return of(((NullWrapper) source).getSource(), begin, end);
+    if (source instanceof Concat)
+      return ((Concat) source).substring(begin, end);
+    if (source instanceof CharWrapper) {
+      final CharWrapper wrapper = (CharWrapper) source;
+      return wrapper.rewrap(of(wrapper.getSource(), begin, end));
+    }
+    if (source instanceof Rot13)
+      return Rot13.of(of(((Rot13) source).getSource(), begin, end));
+    if (source instanceof Reversed) {
+      final StringWrapper result = ((Reversed) source).mirror(begin, end);
+      if (result != null)
+        return result;
     }
     return new Substring(source, begin, end);
   }
@@ -52,13 +106,9 @@ public final class Substring extends AbstractSourceWrapper {
 
   public static StringWrapper ofLength(final CharSequence source, final int begin, final int length) {
     requireNonNull(source, "source");
-    if (begin == 0 && length == source.length())
-      return NullWrapper.of(source);
-    if (source instanceof Substring) {
-      final Substring substr = (Substring) source;
-      new Substring(substr.getSource(), substr.getBegin() + begin, substr.getBegin() + length);
-    }
-    return new Substring(source, begin, begin + length);
+    if (length < 0)
+      throw new StringIndexOutOfBoundsException(length);
+    return of(source, begin, begin + length);
   }
 
   /** Create string wrapper that is no longer than the given maximum. */
@@ -104,9 +154,17 @@ public final class Substring extends AbstractSourceWrapper {
     return of(this, begin, end);
   }
 
+  @Override
+  public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    StringUtils.checkRange(srcBegin, srcEnd, this.length());
+    StringUtils.getChars(this.getSource(), this.getBegin() + srcBegin, this.getBegin() + srcEnd, dst, dstBegin);
+  }
+
   @Override
   public String toString() {
-    return this.getSource().subSequence(this.getBegin(), this.getEnd()).toString();
+    if (this.getSource() instanceof String)
+      return ((String) this.getSource()).substring(this.getBegin(), this.getEnd());
+    return super.toString();
   }
 
   int getBegin() {
@@ -119,8 +177,20 @@ public final class Substring extends AbstractSourceWrapper {
 
   @Override
   protected boolean canContain(final char chr) {
-    if (this.getSource() instanceof AbstractStringWrapper)
-      return ((AbstractStringWrapper) this.getSource()).canContain(chr);
-    return true;
+    final CharSequence src = this.getSource();
+    if (src instanceof AbstractStringWrapper && !((AbstractStringWrapper) src).canContain(chr))
+      return false;
+    return super.canContain(chr);
+  }
+
+  /** Uses the summary of the source if it is known. Otherwise only the range is scanned. */
+  @Override
+  CharPresence computePresence() {
+    if (this.getSource() instanceof AbstractStringWrapper) {
+      final CharPresence p = ((AbstractStringWrapper) this.getSource()).cachedPresence();
+      if (p != null)
+        return p;
+    }
+    return CharPresence.of(this.getSource(), this.getBegin(), this.getEnd());
   }
 }
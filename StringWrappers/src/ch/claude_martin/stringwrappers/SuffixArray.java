@@ -0,0 +1,303 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Index of all suffixes of a text, for repeated searches in the same text. The
+ * suffix array is built by prefix doubling with radix sort in <i>O(n log
+ * n)</i>, the LCP array by the algorithm of Kasai et al. in <i>O(n)</i>.
+ * Occurrences of a pattern of length <i>m</i> are then found in <i>O(m log
+ * n)</i>.
+ *
+ * <p>
+ * The index can be {@link #save(Path) saved} to a file, usually
+ * {@link #indexFile(Path) next to the source}, and
+ * {@link #load(Path, CharSequence) loaded} again, so it doesn't have to be
+ * rebuilt. The file contains the length and the content hash of the text, so
+ * an index is not used for some other text.
+ *
+ * <p>
+ * The text must not be altered while the index is in use. The index itself is
+ * immutable and thread-safe.
+ */
+public final class SuffixArray {
+  /** "SAIX" */
+  private static final int   MAGIC   = 0x53414958;
+  private static final int   VERSION = 1;
+
+  private final CharSequence text;
+  /** Start of each suffix, in lexicographic order. */
+  private final int[]        sa;
+  /** lcp[i] is the length of the longest common prefix of sa[i-1] and sa[i]. */
+  private final int[]        lcp;
+
+  private SuffixArray(final CharSequence text, final int[] sa, final int[] lcp) {
+    this.text = text;
+    this.sa = sa;
+    this.lcp = lcp;
+  }
+
+  /** Builds the index of the given text. */
+  public static SuffixArray of(final CharSequence text) {
+    requireNonNull(text, "text");
+    final int n = text.length();
+    final char[] s = new char[n];
+    StringUtils.getChars(text, 0, n, s, 0);
+    final int[] sa = build(s);
+    return new SuffixArray(text, sa, lcp(s, sa));
+  }
+
+  /**
+   * Sorts the suffixes by prefix doubling. Each round sorts by the pairs of
+   * ranks of the last round, with a stable counting sort.
+   */
+  private static int[] build(final char[] s) {
+    final int n = s.length;
+    final int[] sa = new int[n];
+    if (n == 0)
+      return sa;
+    int[] rank = new int[n];
+    int[] tmp = new int[n];
+    final int[] count = new int[Math.max(Character.MAX_VALUE + 1, n)];
+    for (final char c : s)
+      count[c]++;
+    for (int c = 0, sum = 0; c <= Character.MAX_VALUE; c++) {
+      final int x = count[c];
+      count[c] = sum;
+      sum += x;
+    }
+    for (int i = 0; i < n; i++)
+      sa[count[s[i]]++] = i;
+    rank[sa[0]] = 0;
+    for (int i = 1; i < n; i++)
+      rank[sa[i]] = rank[sa[i - 1]] + (s[sa[i]] != s[sa[i - 1]] ? 1 : 0);
+
+    for (int k = 1; rank[sa[n - 1]] < n - 1; k <<= 1) {
+      // Order by the second key: suffixes shorter than k come first.
+      int p = 0;
+      for (int i = n - k; i < n; i++)
+        tmp[p++] = i;
+      for (int j = 0; j < n; j++)
+        if (sa[j] >= k)
+          tmp[p++] = sa[j] - k;
+      // Stable sort by the first key:
+      final int classes = rank[sa[n - 1]] + 1;
+      Arrays.fill(count, 0, classes, 0);
+      for (int i = 0; i < n; i++)
+        count[rank[i]]++;
+      for (int r = 1; r < classes; r++)
+        count[r] += count[r - 1];
+      for (int j = n - 1; j >= 0; j--)
+        sa[--count[rank[tmp[j]]]] = tmp[j];
+      // New ranks:
+      tmp[sa[0]] = 0;
+      for (int i = 1; i < n; i++) {
+        final int a = sa[i - 1];
+        final int b = sa[i];
+        final boolean same = rank[a] == rank[b]
+            && (a + k < n ? rank[a + k] : -1) == (b + k < n ? rank[b + k] : -1);
+        tmp[b] = tmp[a] + (same ? 0 : 1);
+      }
+      final int[] t = rank;
+      rank = tmp;
+      tmp = t;
+    }
+    return sa;
+  }
+
+  /** Kasai's algorithm. */
+  private static int[] lcp(final char[] s, final int[] sa) {
+    final int n = s.length;
+    final int[] lcp = new int[n];
+    final int[] rank = new int[n];
+    for (int i = 0; i < n; i++)
+      rank[sa[i]] = i;
+    int h = 0;
+    for (int i = 0; i < n; i++) {
+      final int r = rank[i];
+      if (r > 0) {
+        final int j = sa[r - 1];
+        while (i + h < n && j + h < n && s[i + h] == s[j + h])
+          h++;
+        lcp[r] = h;
+        if (h > 0)
+          h--;
+      } else {
+        h = 0;
+      }
+    }
+    return lcp;
+  }
+
+  /** The indexed text. */
+  public CharSequence getText() {
+    return this.text;
+  }
+
+  /** Number of suffixes, which is the length of the text. */
+  public int size() {
+    return this.sa.length;
+  }
+
+  /** Start of the suffix with the given rank. */
+  public int get(final int rank) {
+    return this.sa[rank];
+  }
+
+  /**
+   * Length of the longest common prefix of the suffixes with the given rank and
+   * the rank before. This is 0 for rank 0.
+   */
+  public int lcp(final int rank) {
+    return this.lcp[rank];
+  }
+
+  /**
+   * Compares the suffix at <i>pos</i> with the pattern. Returns 0 if the
+   * pattern is a prefix of the suffix.
+   */
+  private int compare(final int pos, final char[] p) {
+    final int n = this.text.length();
+    for (int j = 0; j < p.length; j++) {
+      if (pos + j >= n)
+        return -1;
+      final int c = this.text.charAt(pos + j) - p[j];
+      if (c != 0)
+        return c;
+    }
+    return 0;
+  }
+
+  /** First rank where the suffix is not less than (or greater than) p. */
+  private int bound(final char[] p, final boolean upper) {
+    int lo = 0;
+    int hi = this.sa.length;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      final int c = this.compare(this.sa[mid], p);
+      if (c < 0 || upper && c == 0)
+        lo = mid + 1;
+      else
+        hi = mid;
+    }
+    return lo;
+  }
+
+  private static char[] toArray(final CharSequence pattern) {
+    requireNonNull(pattern, "pattern");
+    final char[] p = new char[pattern.length()];
+    StringUtils.getChars(pattern, 0, p.length, p, 0);
+    return p;
+  }
+
+  /** Number of occurrences of the pattern. */
+  public int count(final CharSequence pattern) {
+    final char[] p = toArray(pattern);
+    final int lo = this.bound(p, false);
+    return this.bound(p, true) - lo;
+  }
+
+  /** Checks if the text contains the pattern. */
+  public boolean contains(final CharSequence pattern) {
+    final char[] p = toArray(pattern);
+    final int lo = this.bound(p, false);
+    return lo < this.sa.length && this.compare(this.sa[lo], p) == 0;
+  }
+
+  /** Start of each occurrence of the pattern, in ascending order. */
+  public int[] positions(final CharSequence pattern) {
+    final char[] p = toArray(pattern);
+    final int lo = this.bound(p, false);
+    final int[] result = Arrays.copyOfRange(this.sa, lo, this.bound(p, true));
+    Arrays.sort(result);
+    return result;
+  }
+
+  /** The longest substring that occurs at least twice. */
+  public StringWrapper longestRepeat() {
+    int best = 0;
+    for (int r = 1; r < this.lcp.length; r++)
+      if (this.lcp[r] > this.lcp[best])
+        best = r;
+    if (this.sa.length == 0 || this.lcp[best] == 0)
+      return EmptyWrapper.INSTANCE;
+    return Substring.ofLength(this.text, this.sa[best], this.lcp[best]);
+  }
+
+  /** The file for the index of the given source: <code>source.sa</code>. */
+  public static Path indexFile(final Path source) {
+    requireNonNull(source, "source");
+    return source.resolveSibling(source.getFileName() + ".sa");
+  }
+
+  /** Writes this index to the given file. */
+  public void save(final Path file) throws IOException {
+    requireNonNull(file, "file");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(this.sa.length);
+      out.writeInt(StringUtils.hashCode(this.text));
+      for (final int i : this.sa)
+        out.writeInt(i);
+      for (final int i : this.lcp)
+        out.writeInt(i);
+    }
+  }
+
+  /**
+   * Reads an index of the given text from a file.
+   *
+   * @throws IOException
+   *           if the file can't be read or if it is not an index of the text.
+   */
+  public static SuffixArray load(final Path file, final CharSequence text) throws IOException {
+    requireNonNull(file, "file");
+    requireNonNull(text, "text");
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION)
+        throw new IOException("Not a suffix array: " + file);
+      final int n = in.readInt();
+      if (n != text.length() || in.readInt() != StringUtils.hashCode(text))
+        throw new IOException("Index doesn't match the text: " + file);
+      final int[] sa = new int[n];
+      for (int i = 0; i < n; i++)
+        sa[i] = in.readInt();
+      final int[] lcp = new int[n];
+      for (int i = 0; i < n; i++)
+        lcp[i] = in.readInt();
+      return new SuffixArray(text, sa, lcp);
+    }
+  }
+
+  /**
+   * Loads the index of the text from the file if it exists and matches the
+   * text. Otherwise the index is built and saved to the file.
+   */
+  public static SuffixArray loadOrBuild(final Path file, final CharSequence text) throws IOException {
+    if (Files.isRegularFile(file)) {
+      try {
+        return load(file, text);
+      } catch (final IOException e) {
+        // outdated or broken index: build a new one
+      }
+    }
+    final SuffixArray index = of(text);
+    index.save(file);
+    return index;
+  }
+
+  @Override
+  public String toString() {
+    return "SuffixArray[" + this.sa.length + "]";
+  }
+}
@@ -1,20 +1,40 @@
 package ch.claude_martin.stringwrappers;
 
 public final class UpperCase extends CharWrapper {
-  private UpperCase(final CharSequence source) {
-    super(source, CharMapper.TO_UPPER_CASE);
+  private UpperCase(final CharSequence source, final CharMapper mapper) {
+    super(source, mapper);
   }
 
   public static StringWrapper of(final CharSequence source) {
     if (source instanceof UpperCase)
       return (UpperCase) source;
+    return create(source, CharMapper.TO_UPPER_CASE);
+  }
+
+  /**
+   * Creates a wrapper that applies the given mapper, which must end with
+   * {@link CharMapper#TO_UPPER_CASE}. Any mapping of the source is fused.
+   */
+  private static StringWrapper create(CharSequence source, final CharMapper mapper) {
+    source = NullWrapper.unwrap(source);
     if (0 == source.length())
       return EmptyWrapper.INSTANCE;
-    return new UpperCase(source);
+    final CharMapper inner = mapperOf(source);
+    if (inner != null)
+      return new UpperCase(((AbstractSourceWrapper) source).getSource(), CharMapper.compose(inner, mapper));
+    return new UpperCase(source, mapper);
+  }
+
+  @Override
+  StringWrapper rewrap(final CharSequence source) {
+    return create(source, this.getMapper());
   }
 
+  /** Only characters that are already upper case can be the result of the mapping. */
   @Override
   protected boolean canContain(final char chr) {
-    return Character.isUpperCase(chr);
+    if (CharMapper.TO_UPPER_CASE.map(chr) != chr)
+      return false;
+    return super.canContain(chr);
   }
 }
@@ -0,0 +1,250 @@
+package ch.claude_martin.stringwrappers;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Encodes and decodes UTF-8 in a {@link ByteBuffer}, using absolute reads and
+ * writes only. Random access uses an {@link Index}, which stores the byte
+ * offset of every {@value #STRIDE}th char.
+ *
+ * <p>
+ * Malformed input is decoded as one U+FFFD for each byte that can not start a
+ * valid sequence. Unpaired surrogates are encoded as '?', so the encoded text
+ * always has the same length as the original.
+ */
+final class Utf8 {
+  private Utf8() {
+    throw new RuntimeException("No instace for you!");
+  }
+
+  /** Number of chars between two entries of the index. */
+  static final int         STRIDE = 64;
+  /** Number of chars that are encoded at once. */
+  private static final int BLOCK  = 512;
+
+  /** Byte offsets of every {@value Utf8#STRIDE}th char of a text. */
+  static final class Index {
+    /** Number of chars. */
+    final int     length;
+    /** True if all bytes are ASCII. Then each byte is one char. */
+    final boolean ascii;
+    /**
+     * Entry <i>k</i> is the offset of the sequence that contains the char
+     * <i>k*STRIDE</i>, shifted left by one. The lowest bit is set if that char
+     * is the second char (the low surrogate) of the sequence.
+     */
+    final int[]   offsets;
+
+    Index(final int length, final boolean ascii, final int[] offsets) {
+      this.length = length;
+      this.ascii = ascii;
+      this.offsets = offsets;
+    }
+
+    /** Byte offset of the sequence that contains the char at the given index. */
+    int offset(final int index) {
+      return this.offsets[index / STRIDE] >>> 1;
+    }
+
+    /** Index of the first char of the sequence at {@link #offset(int)}. */
+    int first(final int index) {
+      return index - index % STRIDE - (this.offsets[index / STRIDE] & 1);
+    }
+  }
+
+  /** Builds the index of the first <i>limit</i> bytes, which must be less than 1 GiB. */
+  static Index index(final ByteBuffer b, final int limit) {
+    if (limit > Integer.MAX_VALUE >> 1)
+      throw new IllegalArgumentException("Too many bytes: " + limit);
+    // There are never more chars than bytes:
+    final int[] offsets = new int[(limit + STRIDE - 1) / STRIDE];
+    int k = 0;
+    int chars = 0;
+    boolean ascii = true;
+    for (int pos = 0; pos < limit;) {
+      final int d = decode(b, pos, limit);
+      final int cp = d & 0x1FFFFF;
+      final int n = cp >= 0x10000 ? 2 : 1;
+      // Malformed bytes are decoded as U+FFFD, which is not ASCII either.
+      if (cp >= 0x80)
+        ascii = false;
+      for (int c = chars; c < chars + n; c++)
+        if (c % STRIDE == 0)
+          offsets[k++] = pos << 1 | c - chars;
+      chars += n;
+      pos += d >>> 24;
+    }
+    return new Index(chars, ascii, Arrays.copyOf(offsets, k));
+  }
+
+  /**
+   * Decodes the sequence at the given offset. Returns the code point in the
+   * lower 21 bits and the number of bytes in the upper 8 bits.
+   */
+  static int decode(final ByteBuffer b, final int pos, final int limit) {
+    final int b0 = b.get(pos) & 0xFF;
+    if (b0 < 0x80)
+      return b0 | 1 << 24;
+    if (b0 >= 0xC2 && b0 <= 0xDF) {
+      if (pos + 1 < limit) {
+        final int b1 = b.get(pos + 1) & 0xFF;
+        if ((b1 & 0xC0) == 0x80)
+          return ((b0 & 0x1F) << 6 | b1 & 0x3F) | 2 << 24;
+      }
+    } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+      if (pos + 2 < limit) {
+        final int b1 = b.get(pos + 1) & 0xFF;
+        final int b2 = b.get(pos + 2) & 0xFF;
+        if ((b1 & 0xC0) == 0x80 && (b2 & 0xC0) == 0x80 && (b0 != 0xE0 || b1 >= 0xA0) && (b0 != 0xED || b1 < 0xA0))
+          return ((b0 & 0x0F) << 12 | (b1 & 0x3F) << 6 | b2 & 0x3F) | 3 << 24;
+      }
+    } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+      if (pos + 3 < limit) {
+        final int b1 = b.get(pos + 1) & 0xFF;
+        final int b2 = b.get(pos + 2) & 0xFF;
+        final int b3 = b.get(pos + 3) & 0xFF;
+        if ((b1 & 0xC0) == 0x80 && (b2 & 0xC0) == 0x80 && (b3 & 0xC0) == 0x80 && (b0 != 0xF0 || b1 >= 0x90)
+            && (b0 != 0xF4 || b1 < 0x90))
+          return ((b0 & 0x07) << 18 | (b1 & 0x3F) << 12 | (b2 & 0x3F) << 6 | b3 & 0x3F) | 4 << 24;
+      }
+    }
+    return 0xFFFD | 1 << 24;
+  }
+
+  /** The char at the given index. The index must be valid. */
+  static char charAt(final ByteBuffer b, final int limit, final Index index, final int i) {
+    int pos = index.offset(i);
+    int c = index.first(i);
+    for (;;) {
+      final int d = decode(b, pos, limit);
+      final int cp = d & 0x1FFFFF;
+      if (cp >= 0x10000) {
+        if (c == i)
+          return Character.highSurrogate(cp);
+        if (c + 1 == i)
+          return Character.lowSurrogate(cp);
+        c += 2;
+      } else {
+        if (c == i)
+          return (char) cp;
+        c++;
+      }
+      pos += d >>> 24;
+    }
+  }
+
+  /** Decodes the chars from <i>begin</i> to <i>end</i>. The range must be valid. */
+  static void getChars(final ByteBuffer b, final int limit, final Index index, final int begin, final int end,
+      final char[] dst, int dstBegin) {
+    if (begin == end)
+      return;
+    int pos = index.offset(begin);
+    int c = index.first(begin);
+    while (c < end) {
+      final int d = decode(b, pos, limit);
+      final int cp = d & 0x1FFFFF;
+      if (cp >= 0x10000) {
+        if (c >= begin)
+          dst[dstBegin++] = Character.highSurrogate(cp);
+        if (c + 1 >= begin && c + 1 < end)
+          dst[dstBegin++] = Character.lowSurrogate(cp);
+        c += 2;
+      } else {
+        if (c >= begin)
+          dst[dstBegin++] = (char) cp;
+        c++;
+      }
+      pos += d >>> 24;
+    }
+  }
+
+  /** Decodes the first <i>limit</i> bytes sequentially, without an index. */
+  static CharIterator iterator(final ByteBuffer b, final int limit) {
+    return new CharIterator() {
+      private int  pos = 0;
+      /** Low surrogate of the last code point, or 0. */
+      private char low = 0;
+
+      @Override
+      public boolean hasNext() {
+        return this.low != 0 || this.pos < limit;
+      }
+
+      @Override
+      public char nextChar() {
+        if (this.low != 0) {
+          final char c = this.low;
+          this.low = 0;
+          return c;
+        }
+        if (this.pos >= limit)
+          throw new NoSuchElementException();
+        final int d = decode(b, this.pos, limit);
+        this.pos += d >>> 24;
+        final int cp = d & 0x1FFFFF;
+        if (cp < 0x10000)
+          return (char) cp;
+        this.low = Character.lowSurrogate(cp);
+        return Character.highSurrogate(cp);
+      }
+    };
+  }
+
+  /**
+   * Encodes the sequence and writes it to the buffer, starting at its
+   * position. If the buffer is null then the bytes are only counted.
+   *
+   * @return number of bytes
+   */
+  static long encode(final CharSequence s, final ByteBuffer dst) {
+    final int n = s.length();
+    final char[] buf = new char[Math.min(n, BLOCK) + 1];
+    final byte[] out = new byte[3 * buf.length];
+    long total = 0;
+    int carry = 0;
+    for (int pos = 0; pos < n;) {
+      final int len = Math.min(BLOCK, n - pos);
+      StringUtils.getChars(s, pos, pos + len, buf, carry);
+      pos += len;
+      int end = carry + len;
+      carry = 0;
+      if (pos < n && Character.isHighSurrogate(buf[end - 1])) {
+        // The low surrogate is in the next block.
+        end--;
+        carry = 1;
+      }
+      int o = 0;
+      for (int i = 0; i < end; i++) {
+        final char c = buf[i];
+        if (c < 0x80) {
+          out[o++] = (byte) c;
+        } else if (c < 0x800) {
+          out[o++] = (byte) (0xC0 | c >> 6);
+          out[o++] = (byte) (0x80 | c & 0x3F);
+        } else if (Character.isSurrogate(c)) {
+          if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(buf[i + 1])) {
+            final int cp = Character.toCodePoint(c, buf[++i]);
+            out[o++] = (byte) (0xF0 | cp >> 18);
+            out[o++] = (byte) (0x80 | cp >> 12 & 0x3F);
+            out[o++] = (byte) (0x80 | cp >> 6 & 0x3F);
+            out[o++] = (byte) (0x80 | cp & 0x3F);
+          } else {
+            out[o++] = '?';
+          }
+        } else {
+          out[o++] = (byte) (0xE0 | c >> 12);
+          out[o++] = (byte) (0x80 | c >> 6 & 0x3F);
+          out[o++] = (byte) (0x80 | c & 0x3F);
+        }
+      }
+      if (dst != null)
+        dst.put(out, 0, o);
+      total += o;
+      if (carry == 1)
+        buf[0] = buf[end];
+    }
+    return total;
+  }
+}
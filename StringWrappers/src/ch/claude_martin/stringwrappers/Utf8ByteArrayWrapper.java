@@ -0,0 +1,120 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wraps an array of bytes, encoded as UTF-8. The bytes are not decoded to a
+ * {@link String}, so they only use as much memory as the encoded text.
+ *
+ * <p>
+ * If all bytes are ASCII then each byte is one char and random access is
+ * direct. Otherwise an index holds the byte offset of every
+ * {@value Utf8#STRIDE}th char, so {@link #charAt(int)} only decodes a few
+ * bytes. The {@link #iterator() iterator} decodes sequentially and does not use
+ * the index.
+ *
+ * <p>
+ * Malformed bytes are read as U+FFFD. The array must not be modified.
+ */
+public final class Utf8ByteArrayWrapper extends AbstractStringWrapper {
+  private final byte[]     bytes;
+  private final int        offset;
+  /** The bytes from <i>offset</i>, as a buffer that starts at 0. */
+  private final ByteBuffer buffer;
+  private final Utf8.Index index;
+
+  private Utf8ByteArrayWrapper(final byte[] bytes, final int offset, final int length) {
+    super();
+    this.bytes = bytes;
+    this.offset = offset;
+    this.buffer = ByteBuffer.wrap(bytes, offset, length).slice();
+    this.index = Utf8.index(this.buffer, length);
+  }
+
+  /** Wraps the given array of UTF-8 bytes. */
+  public static StringWrapper of(final byte[] bytes) {
+    requireNonNull(bytes, "bytes");
+    return of(bytes, 0, bytes.length);
+  }
+
+  /** Wraps a range of the given array of UTF-8 bytes. */
+  public static StringWrapper of(final byte[] bytes, final int offset, final int length) {
+    requireNonNull(bytes, "bytes");
+    if (offset < 0 || length < 0 || offset + length > bytes.length)
+      throw new IllegalArgumentException();
+    if (length == 0)
+      return StringUtils.empty();
+    return new Utf8ByteArrayWrapper(bytes, offset, length);
+  }
+
+  /** Checks if all bytes are ASCII. Then no index is used. */
+  public boolean isAscii() {
+    return this.index.ascii;
+  }
+
+  @Override
+  public int length() {
+    return this.index.length;
+  }
+
+  @Override
+  public char charAt(final int index) {
+    if (index < 0 || index >= this.index.length)
+      throw new StringIndexOutOfBoundsException(index);
+    if (this.index.ascii)
+      return (char) this.bytes[this.offset + index];
+    return Utf8.charAt(this.buffer, this.buffer.limit(), this.index, index);
+  }
+
+  @Override
+  public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+    StringUtils.checkRange(srcBegin, srcEnd, this.index.length);
+    if (this.index.ascii)
+      ArrayKernels.inflate(this.bytes, this.offset + srcBegin, dst, dstBegin, srcEnd - srcBegin);
+    else
+      Utf8.getChars(this.buffer, this.buffer.limit(), this.index, srcBegin, srcEnd, dst, dstBegin);
+  }
+
+  @Override
+  public int indexOf(final char chr, final int fromIndex) {
+    final int length = this.index.length;
+    final int from = Math.max(0, fromIndex);
+    if (from >= length || !this.canContain(chr))
+      return -1;
+    if (this.index.ascii) {
+      final int i = ArrayKernels.indexOf(this.bytes, this.offset + from, this.offset + length, (byte) chr);
+      return i < 0 ? -1 : i - this.offset;
+    }
+    // Only the start of each block needs the index.
+    final char[] buf = new char[Math.min(512, length - from)];
+    for (int pos = from; pos < length; pos += buf.length) {
+      final int n = Math.min(buf.length, length - pos);
+      this.getChars(pos, pos + n, buf, 0);
+      final int i = ArrayKernels.indexOf(buf, 0, n, chr);
+      if (i >= 0)
+        return pos + i;
+    }
+    return -1;
+  }
+
+  /** Decodes sequentially, without the index. */
+  @Override
+  public CharIterator iterator() {
+    return Utf8.iterator(this.buffer, this.buffer.limit());
+  }
+
+  @Override
+  protected boolean canContain(final char chr) {
+    if (this.index.ascii)
+      return chr < 0x80;
+    return super.canContain(chr);
+  }
+
+  @Override
+  long retained(final boolean bytes) {
+    final long index = 4L * this.index.offsets.length;
+    return this.bytes.length + (bytes ? index : index / 2);
+  }
+}
@@ -41,6 +41,23 @@ public abstract class AbstractStringWrapperTest {
     }
   }
 
+  /** Checks that {@link StringWrapper#getChars} copies the same as charAt. */
+  public void assertGetChars(final StringWrapper actual) {
+    final int length = actual.length();
+    final int step = Math.max(1, length / 7);
+    for (int begin = 0; begin <= length; begin += step) {
+      for (int end = begin; end <= length; end += step) {
+        final char[] chars = new char[end - begin + 2];
+        actual.getChars(begin, end, chars, 1);
+        for (int i = begin; i < end; i++) {
+          if (chars[1 + i - begin] != actual.charAt(i))
+            fail(String.format("getChars(%d, %d) differs from charAt(%d) of '%s'", begin, end, i,
+                this.pretty(actual)));
+        }
+      }
+    }
+  }
+
   private static Collection<Object[]> data = null;
 
   @Parameters
@@ -0,0 +1,91 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class AhoCorasickTest extends AbstractStringWrapperTest {
+
+  public AhoCorasickTest(final String input) {
+    super(input);
+  }
+
+  /** Some patterns that occur in the input, and some that might not. */
+  private List<String> patterns() {
+    final String str = this.input;
+    final int l = Math.min(str.length(), 300);
+    final List<String> result = new ArrayList<>();
+    for (int i = 0; i < l; i += 1 + l / 13)
+      for (int m = 1; m <= 5 && i + m <= l; m += 2)
+        result.add(str.substring(i, i + m));
+    result.add("xyz");
+    result.add("x");
+    result.add("x\0");
+    return result;
+  }
+
+  /** All matches by String.indexOf, as "pattern:begin". */
+  private static Set<String> expected(final String text, final List<String> patterns) {
+    final Set<String> result = new HashSet<>();
+    for (int p = 0; p < patterns.size(); p++) {
+      if (patterns.indexOf(patterns.get(p)) != p)
+        continue;
+      for (int i = text.indexOf(patterns.get(p)); i >= 0; i = text.indexOf(patterns.get(p), i + 1))
+        result.add(p + ":" + i);
+    }
+    return result;
+  }
+
+  @Test
+  public final void testScan() {
+    final String str = this.input;
+    final List<String> patterns = this.patterns();
+    final AhoCorasick ac = AhoCorasick.of(patterns);
+    final Set<String> expected = expected(str, patterns);
+
+    final StringWrapper text = Concat.of(new CharSequence[] { Substring.of(str, 0, str.length() / 2),
+        Substring.of(str, str.length() / 2) });
+    final Set<String> actual = new HashSet<>();
+    assertTrue(ac.scan(text, (p, begin, end) -> {
+      assertEquals(ac.getPattern(p).length(), end - begin);
+      return actual.add(p + ":" + begin);
+    }));
+    assertEquals(expected, actual);
+
+    final Set<String> iterated = new HashSet<>();
+    ac.scan(NullWrapper.of(str).iterator(), (p, begin, end) -> iterated.add(p + ":" + begin));
+    assertEquals(expected, iterated);
+
+    for (final StringWrapper match : ac.findAll(text))
+      assertTrue(patterns.contains(match.toString()));
+    assertEquals(expected.size(), ac.findAll(text).size());
+    assertEquals(!expected.isEmpty(), ac.containsAny(text));
+  }
+
+  @Test
+  public final void testIgnoreCase() {
+    final String str = this.input;
+    final List<String> patterns = this.patterns();
+    final List<String> upper = new ArrayList<>();
+    for (final String p : patterns)
+      upper.add(UpperCase.of(p).toString());
+    final AhoCorasick ac = AhoCorasick.ofIgnoreCase(upper);
+    final Set<String> expected = expected(LowerCase.of(UpperCase.of(str)).toString(),
+        new ArrayList<>(asLower(upper)));
+    final Set<String> actual = new HashSet<>();
+    ac.scan(LowerCase.of(str), (p, begin, end) -> actual.add(p + ":" + begin));
+    assertEquals(expected, actual);
+  }
+
+  private static List<String> asLower(final List<String> list) {
+    final List<String> result = new ArrayList<>();
+    for (final String s : list)
+      result.add(LowerCase.of(UpperCase.of(s)).toString());
+    return result;
+  }
+}
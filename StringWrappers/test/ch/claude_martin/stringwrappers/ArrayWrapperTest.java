@@ -0,0 +1,44 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ArrayWrapperTest extends AbstractStringWrapperTest {
+
+  public ArrayWrapperTest(final String input) {
+    super(input);
+  }
+
+  @Test
+  public void testOf() {
+    final String str = this.input;
+    final int l = str.length();
+    final char[] chars = ("<<" + str + ">>").toCharArray();
+    final StringWrapper cw = CharArrayWrapper.of(chars, 2, l);
+    final byte[] latin1 = ASCII.toASCII(str, (byte) '?', true);
+    final StringWrapper bw = ByteArrayWrapper.of(latin1);
+    final String latin1Str = new String(latin1, StandardCharsets.ISO_8859_1);
+    this.assertEqualStrings(str, cw);
+    assertTrue(cw.contentEquals(str));
+    assertEquals(latin1Str.equals(str), cw.contentEquals(bw));
+    assertTrue(bw.contentEquals(ByteArrayWrapper.of(latin1.clone())));
+    assertTrue(cw.contentEquals(CharArrayWrapper.of(str.toCharArray())));
+    for (final char c : new char[] { 'x', '<', '>', '\0', '?', '\u00FF', '\u0100', '\uD834' }) {
+      for (final int from : new int[] { -1, 0, 1, l / 2, l })
+        assertEquals(str.indexOf(c, from), cw.indexOf(c, from));
+      assertEquals(latin1Str.indexOf(c), bw.indexOf(c));
+    }
+    assertArrayEquals(latin1, ASCII.toASCII(cw, (byte) '?', true));
+    assertArrayEquals(latin1, ASCII.toASCII(Reversed.of(Reversed.of(str)), (byte) '?', true));
+    assertArrayEquals(latin1, ASCII.toASCII(bw, (byte) '?', true));
+    final byte[] ascii = ASCII.toASCII(str, (byte) '?', false);
+    for (int i = 0; i < l; i++)
+      assertEquals(str.charAt(i) > 0x7F ? '?' : str.charAt(i), ascii[i]);
+    assertArrayEquals(str.getBytes(StandardCharsets.ISO_8859_1),
+        cw.getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+}
@@ -0,0 +1,101 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class CharMatcherTest extends AbstractStringWrapperTest {
+
+  public CharMatcherTest(final String input) {
+    super(input);
+  }
+
+  @Test
+  public final void testMatchers() {
+    final CharMatcher set = CharMatcher.anyOf("aeiouä€\uD834");
+    final CharMatcher range = CharMatcher.inRange('x', 'ā');
+    final CharMatcher digit = c -> Character.isDigit(c);
+    final CharMatcher[] matchers = { set, range, set.negate(), set.or(range), set.and(range.negate()),
+        CharMatchers.DIGIT.or(CharMatchers.WHITESPACE), CharMatcher.precompute(digit).negate(), CharMatchers.ANY,
+        CharMatchers.NONE, CharMatcher.is('€'), CharMatcher.noneOf("") };
+    for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+      final char chr = (char) c;
+      final boolean s = "aeiouä€\uD834".indexOf(chr) >= 0;
+      final boolean r = chr >= 'x' && chr <= 'ā';
+      final boolean[] expected = { s, r, !s, s || r, s && !r,
+          Character.isDigit(chr) || Character.isWhitespace(chr), !digit.matches(chr), true, false, chr == '€',
+          true };
+      for (int i = 0; i < matchers.length; i++)
+        if (expected[i] != matchers[i].matches(chr))
+          fail(i + ": " + matchers[i] + " at " + c);
+    }
+  }
+
+  @Test
+  public final void testSearch() {
+    final String str = this.input;
+    final int l = str.length();
+    final StringWrapper wrapper = Concat.of(new CharSequence[] { Substring.of(str, 0, l / 2), Substring.of(str, l / 2) });
+    for (final CharMatcher m : new CharMatcher[] { CharMatcher.is(' '), CharMatchers.WHITESPACE.negate(),
+        CharMatcher.anyOf('e', 'ä', 'Ā'), CharMatchers.NONE, CharMatchers.ANY }) {
+      int first = -1, last = -1, count = 0;
+      for (int i = 0; i < l; i++)
+        if (m.matches(str.charAt(i))) {
+          if (first < 0)
+            first = i;
+          last = i;
+          count++;
+        }
+      assertEquals(first, wrapper.indexOf(m));
+      assertEquals(last, wrapper.lastIndexOf(m));
+      assertEquals(count, wrapper.countMatches(m));
+      for (final int from : new int[] { -1, 0, l / 3, l - 1, l, l + 1 }) {
+        int next = -1, previous = -1;
+        for (int i = Math.max(0, from); i < l && next < 0; i++)
+          if (m.matches(str.charAt(i)))
+            next = i;
+        for (int i = Math.min(from, l - 1); i >= 0 && previous < 0; i--)
+          if (m.matches(str.charAt(i)))
+            previous = i;
+        assertEquals(next, wrapper.indexOf(m, from));
+        assertEquals(previous, wrapper.lastIndexOf(m, from));
+      }
+    }
+  }
+
+  @Test
+  public final void testTrimAndSplit() {
+    final StringWrapper wrapped = NullWrapper.of(this.input);
+    this.assertEqualStrings(this.input.trim(), wrapped.trim(CharMatchers.TRIM));
+    this.assertEqualStrings(wrapped.trim(' ', '\t', '\n'), wrapped.trim(CharMatcher.anyOf(" \t\n")));
+    this.assertEqualStrings(wrapped.trim(asList(' ', 'ä')), wrapped.trim(CharMatcher.anyOf(' ', 'ä')));
+
+    final List<StringWrapper> split = wrapped.split(CharMatcher.anyOf(" ,."));
+    final String[] expected = this.input.split("[ ,.]", -1);
+    assertEquals(expected.length, split.size());
+    for (int i = 0; i < expected.length; i++)
+      this.assertEqualStrings(expected[i], split.get(i));
+    assertEquals(expected.length, wrapped.splitStream(CharMatcher.anyOf(" ,.")).count());
+  }
+
+  @Test
+  public final void testPlainMatcher() {
+    // A plain matcher is not precomputed, so it is only called for the chars that are read.
+    final int[] calls = { 0 };
+    final CharMatcher space = c -> {
+      calls[0]++;
+      return c == ' ';
+    };
+    final StringWrapper token = NullWrapper.of(" ab ");
+    this.assertEqualStrings("ab", token.trim(space));
+    calls[0] = 0;
+    assertEquals(3, token.indexOf(space, 1));
+    assertEquals(2, token.countMatches(space));
+    assertEquals(0, token.lastIndexOf(space, 2));
+    assertEquals(3 + 4 + 3, calls[0]);
+  }
+
+}
@@ -0,0 +1,153 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class CharWrapperTest extends AbstractStringWrapperTest {
+
+  public CharWrapperTest(final String input) {
+    super(input);
+  }
+
+  /** Number of nested wrappers. */
+  private static int depth(final CharSequence s) {
+    if (s instanceof AbstractSourceWrapper)
+      return 1 + depth(((AbstractSourceWrapper) s).getSource());
+    return 0;
+  }
+
+  private static StringWrapper map(final String s, final CharMapper... mappers) {
+    final char[] chars = s.toCharArray();
+    for (int i = 0; i < chars.length; i++)
+      for (final CharMapper m : mappers)
+        chars[i] = m.map(chars[i]);
+    return CharArrayWrapper.of(chars);
+  }
+
+  @Test
+  public final void testFusion() {
+    final String str = this.input;
+    final CharMapper m1 = c -> c == 'x' ? 'y' : c;
+    final CharMapper m2 = c -> (char) (c ^ 1);
+
+    final StringWrapper chain = NullWrapper.of(str).toUpperCase().map(m1).map(m2);
+    this.assertEqualStrings(map(str, CharMapper.TO_UPPER_CASE, m1, m2), chain);
+    if (!str.isEmpty())
+      assertEquals(1, depth(chain));
+
+    final StringWrapper upperLower = UpperCase.of(LowerCase.of(str));
+    this.assertEqualStrings(map(str, CharMapper.TO_LOWER_CASE, CharMapper.TO_UPPER_CASE), upperLower);
+    if (!str.isEmpty()) {
+      assertEquals(1, depth(upperLower));
+      assertTrue(upperLower instanceof UpperCase);
+    }
+
+    final StringWrapper rot = Rot13.of(CharWrapper.of(Rot13.of(str), m2));
+    this.assertEqualStrings(map(str, CharMapper.ROT13, m2, CharMapper.ROT13), rot);
+    if (!str.isEmpty())
+      assertEquals(1, depth(rot));
+
+    final StringWrapper ascii = CharWrapper.of(ASCII.of(UpperCase.of(str)), m1);
+    this.assertEqualStrings(map(str, CharMapper.TO_UPPER_CASE, c -> c > '\u007F' ? '?' : c, m1), ascii);
+    if (!str.isEmpty())
+      assertEquals(1, depth(ascii));
+
+    // ASCII as the outer wrapper is fused as well:
+    final CharMapper toAscii = c -> c > '\u007F' ? '?' : c;
+    CharSequence upperAscii = str;
+    CharSequence latin1Ascii = str;
+    for (int i = 0; i < 10; i++) {
+      upperAscii = ASCII.of(UpperCase.of(upperAscii));
+      latin1Ascii = ASCII.of(ASCII.ofLatin1(latin1Ascii));
+    }
+    this.assertEqualStrings(map(str, CharMapper.TO_UPPER_CASE, toAscii), upperAscii);
+    this.assertEqualStrings(map(str, toAscii), latin1Ascii);
+    if (!str.isEmpty()) {
+      assertEquals(1, depth(upperAscii));
+      assertEquals(1, depth(latin1Ascii));
+      assertEquals(1, depth(ASCII.of(Rot13.of(ASCII.of(CharWrapper.of(str, m1), '\u241A')))));
+    }
+  }
+
+  @Test
+  public final void testLookupTable() {
+    final CharMapper m = c -> (char) (c < 0x3000 ? c ^ 3 : c);
+    final CharMapper table = CharMapper.lookupTable(m);
+    assertSame(table, CharMapper.lookupTable(table));
+    for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++)
+      assertEquals(m.map((char) c), table.map((char) c));
+
+    final StringWrapper fused = CharWrapper.of(Rot13.of(UpperCase.of(this.input)), table);
+    this.assertEqualStrings(map(this.input, CharMapper.TO_UPPER_CASE, CharMapper.ROT13, m), fused);
+    if (!this.input.isEmpty())
+      assertTrue(((CharWrapper) fused).getMapper() instanceof LookupTableMapper);
+  }
+
+  @Test
+  public final void testCancel() {
+    final String str = this.input;
+    if (!str.isEmpty())
+      assertSame(str, ((NullWrapper) Rot13.of(Rot13.of(str))).getSource());
+
+    final StringWrapper rot = Rot13.of(Substring.of(Rot13.of(str), 0, str.length() / 2));
+    this.assertEqualStrings(str.substring(0, str.length() / 2), rot);
+    assertTrue(depth(rot) <= 1);
+
+    final StringWrapper upper = Reversed.of(UpperCase.of(Reversed.of(str)));
+    this.assertEqualStrings(UpperCase.of(str), upper);
+    if (str.length() > 1) {
+      assertEquals(1, depth(upper));
+      assertTrue(upper instanceof UpperCase);
+    }
+
+    final StringWrapper rev = Reversed.of(Rot13.of(CharWrapper.of(Reversed.of(str), CharMapper.ROT13)));
+    this.assertEqualStrings(str, rev);
+    assertTrue(depth(rev) <= 1);
+  }
+
+  @Test
+  public final void testCanContain() {
+    final String str = this.input;
+    final AbstractStringWrapper[] wrappers = { (AbstractStringWrapper) UpperCase.of(str + "a1"),
+        (AbstractStringWrapper) Concat.of(new CharSequence[] { "abc", str, "abc" }),
+        (AbstractStringWrapper) NullWrapper.of(Reversed.of(str + "xy")),
+        (AbstractStringWrapper) Rot13.of(Concat.of(str, "12")), (AbstractStringWrapper) ASCII.of(str + "\u00E4", '\u241A') };
+    for (final AbstractStringWrapper w : wrappers) {
+      final String expected = w.toString();
+      for (int i = 0; i < expected.length(); i += 1 + expected.length() / 50)
+        assertTrue(w.canContain(expected.charAt(i)));
+      for (final char c : new char[] { '1', 'x', 'A', '\u241A', '\u00E4', '\uD834' })
+        assertEquals(expected.indexOf(c), w.indexOf(c));
+    }
+    if (!str.isEmpty()) {
+      // The summary is only calculated after a search did not find anything.
+      final AbstractStringWrapper w = (AbstractStringWrapper) CharWrapper.of(str,
+          CharMapper.lookupTable(c -> c == 'a' ? 'b' : c));
+      assertTrue(w.canContain('a'));
+      assertEquals(-1, w.indexOf('a'));
+      assertFalse(w.canContain('a'));
+    }
+    // Wrappers ask their sources before any summary is calculated:
+    final byte[] latin1 = ASCII.toASCII(str + "xyz", (byte) '?', true);
+    final StringWrapper bytes = ByteArrayWrapper.of(latin1);
+    final AbstractStringWrapper[] sourced = { (AbstractStringWrapper) Substring.of(bytes, 1, latin1.length),
+        (AbstractStringWrapper) Reversed.of(bytes), (AbstractStringWrapper) Rot13.of(bytes),
+        (AbstractStringWrapper) Concat.of(bytes, bytes) };
+    for (final AbstractStringWrapper w : sourced) {
+      assertFalse(w.canContain('\u4E00'));
+      assertEquals(-1, w.indexOf('\u4E00'));
+      assertNull(w.cachedPresence());
+    }
+    assertFalse(((AbstractStringWrapper) UpperCase.of(str + "x")).canContain('a'));
+    assertFalse(((AbstractStringWrapper) LowerCase.of(str + "x")).canContain('A'));
+    final StringWrapper concat = Concat.of(new CharSequence[] { "abc", Reversed.of("def"), Substring.of("ghi", 1) });
+    assertEquals(0, concat.indexOf('a'));
+    assertNull(((AbstractStringWrapper) concat).cachedPresence());
+    assertEquals(-1, concat.indexOf('x'));
+    assertFalse(((AbstractStringWrapper) concat).canContain('x'));
+    assertEquals(-1, concat.indexOf("xy"));
+    assertEquals(4, concat.indexOf("ed"));
+  }
+
+}
@@ -0,0 +1,62 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class CompactBuilderTest extends AbstractStringWrapperTest {
+
+  public CompactBuilderTest(final String input) {
+    super(input);
+  }
+
+  @Test
+  public final void testBuild() {
+    final String str = this.input;
+    final boolean latin1 = StringUtils.isLatin1(str);
+    final CompactBuilder builder = new CompactBuilder(4);
+    builder.append(Rot13.of(str));
+    assertEquals(latin1, builder.isLatin1());
+    final String expected = Rot13.of(str).toString();
+    final StringWrapper built = builder.build();
+    assertEquals(expected, builder.toString());
+    if (str.isEmpty()) {
+      assertSame(EmptyWrapper.INSTANCE, built);
+    } else {
+      assertTrue(latin1 ? built instanceof ByteArrayWrapper : built instanceof CharArrayWrapper);
+      this.assertEqualStrings(expected, built);
+      this.assertGetChars(built);
+      assertEquals(latin1 ? str.length() : 2L * str.length(), built.retainedBytes());
+    }
+
+    // Appending after build must not alter the built wrapper.
+    builder.append('x').append(str, 0, str.length() / 2).append('•');
+    assertFalse(builder.isLatin1());
+    assertEquals(expected, built.toString());
+    final String more = expected + "x" + str.substring(0, str.length() / 2) + "•";
+    assertEquals(more, builder.toString());
+    final StringWrapper wide = builder.build();
+    assertTrue(wide instanceof CharArrayWrapper);
+    this.assertEqualStrings(more, wide);
+
+    builder.clear();
+    assertEquals(0, builder.length());
+    assertEquals(more, wide.toString());
+
+    // Like StringBuilder, as required by Appendable:
+    final CharSequence none = null;
+    builder.append(none).append(none, 1, 3);
+    assertEquals(new StringBuilder().append(none).append(none, 1, 3).toString(), builder.toString());
+  }
+
+  @Test
+  public final void testDetach() {
+    final String str = this.input;
+    final StringWrapper copy = Substring.of(Concat.of(new CharSequence[] { "<", str, ">" }), 1, str.length() + 1)
+        .detach();
+    this.assertEqualStrings(str, copy);
+    if (!str.isEmpty())
+      assertEquals(StringUtils.isLatin1(str), copy instanceof ByteArrayWrapper);
+  }
+
+}
@@ -0,0 +1,139 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Spliterator;
+
+import org.junit.Test;
+
+public class ConcatTest extends AbstractStringWrapperTest {
+
+  public ConcatTest(final String input) {
+    super(input);
+  }
+
+  @Test
+  public final void testOf() {
+    final String str = this.input;
+    final int m = str.length() / 2;
+    final String a = str.substring(0, m);
+    final String b = str.substring(m);
+
+    this.assertEqualStrings(str, Concat.of(a, b));
+    this.assertEqualStrings(str + str, Concat.of(new CharSequence[] { a, b, a, b }));
+    this.assertEqualStrings(str + str, Concat.of(new CharSequence[] { str, "", str }));
+    this.assertEqualStrings(str + str + str, Concat.repeat(str, 3));
+    assertEquals(str.length() * 5, Concat.repeat(str, 5).length());
+    assertSame(EmptyWrapper.INSTANCE, Concat.of("", ""));
+    if (str.isEmpty())
+      assertSame(EmptyWrapper.INSTANCE, Concat.of(str, str));
+  }
+
+  @Test
+  public final void testConcat() {
+    final String str = this.input;
+    final int step = Math.max(1, str.length() / 200);
+    final StringBuilder sb = new StringBuilder();
+    StringWrapper concat = EmptyWrapper.INSTANCE;
+    for (int i = 0; i < str.length(); i += step) {
+      final String part = str.substring(i, Math.min(str.length(), i + step));
+      sb.append(part);
+      concat = concat.concat(part);
+      this.assertEqualStrings(sb, concat);
+    }
+    assertEquals(sb.length(), concat.length());
+    assertEquals(sb.toString(), concat.toString());
+
+    if (concat instanceof Concat) {
+      // 200 leaves, so the tree should be about 8 levels deep:
+      assertTrue(Concat.depth(concat) <= 12);
+    }
+
+    final CharIterator itr = concat.iterator();
+    for (int i = 0; i < sb.length(); i++) {
+      assertTrue(itr.hasNext());
+      assertEquals(sb.charAt(i), itr.nextChar());
+    }
+    assertFalse(itr.hasNext());
+  }
+
+  @Test
+  public final void testIndexOf() {
+    final String str = this.input;
+    final StringWrapper concat = Concat.of(new CharSequence[] { str, "|", str });
+    for (final char c : new char[] { 'x', '|', '\0', ' ', 'Z' }) {
+      final String expected = str + "|" + str;
+      assertEquals(expected.indexOf(c), concat.indexOf(c));
+      assertEquals(expected.indexOf(c, str.length() + 1), concat.indexOf(c, str.length() + 1));
+    }
+  }
+
+  @Test
+  public final void testGetChars() {
+    final String str = this.input;
+    final int m = str.length() / 2;
+    final StringWrapper concat = Concat.of(new CharSequence[] { //
+        Substring.of(str, 0, m), Reversed.of(str), CharArrayWrapper.of(str.toCharArray(), m, str.length() - m), //
+        new StringBuilder(str), CharWrapper.of(str, CharMapper.TO_UPPER_CASE), Rot13.of(str), ASCII.of(str), //
+        ByteArrayWrapper.of(str.getBytes(StandardCharsets.ISO_8859_1)) });
+    this.assertGetChars(concat);
+
+    final String expected = concat.toString();
+    this.assertEqualStrings(expected, concat);
+    assertTrue(StringUtils.equals(expected, concat));
+    assertTrue(concat.contentEquals(NullWrapper.of(expected)));
+    for (final Charset cs : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16LE,
+        StandardCharsets.ISO_8859_1 })
+      assertArrayEquals(expected.getBytes(cs), concat.getBytes(cs));
+  }
+
+  @Test
+  public final void testChars() {
+    final String str = this.input;
+    final StringWrapper concat = Concat.repeat(Concat.of(str, Reversed.of(str)), 3);
+    final String expected = concat.toString();
+
+    assertArrayEquals(expected.chars().toArray(), concat.chars().toArray());
+    assertArrayEquals(expected.chars().toArray(), concat.chars().parallel().toArray());
+    assertArrayEquals(expected.codePoints().toArray(), concat.codePoints().toArray());
+    assertArrayEquals(expected.codePoints().toArray(), concat.codePoints().parallel().toArray());
+    assertEquals(expected.chars().filter(Character::isLetter).count(),
+        concat.chars().parallel().filter(Character::isLetter).count());
+
+    if (concat.length() > 10_000)
+      assertNotNull(concat.chars().spliterator().trySplit());
+
+    // Only an immutable source is IMMUTABLE:
+    final StringWrapper mutable = Concat.of(str, new StringBuilder("xyz"));
+    assertTrue(CharSpliterator.chars(concat).hasCharacteristics(Spliterator.IMMUTABLE));
+    assertTrue(CharSpliterator.codePoints(concat).hasCharacteristics(Spliterator.IMMUTABLE));
+    assertFalse(CharSpliterator.chars(mutable).hasCharacteristics(Spliterator.IMMUTABLE));
+    assertFalse(CharSpliterator.codePoints(mutable).hasCharacteristics(Spliterator.IMMUTABLE));
+    assertFalse(mutable.chars().spliterator().hasCharacteristics(Spliterator.IMMUTABLE));
+    assertTrue(CharSpliterator.chars(mutable).hasCharacteristics(Spliterator.SIZED));
+  }
+
+  @Test
+  public final void testContentHash() {
+    final String str = this.input;
+    final StringWrapper concat = Concat.repeat(Concat.of(str, Reversed.of(str)), 5);
+    final String expected = concat.toString();
+    assertEquals(expected.hashCode(), concat.contentHash());
+    assertEquals(expected.hashCode(), concat.contentHash());
+    assertEquals(expected.hashCode(), StringUtils.hashCode(concat));
+    final int l = expected.length();
+    final int step = Math.max(1, l / 10);
+    for (int i = 0; i <= l / 2; i += step)
+      assertEquals(expected.substring(i, l - i).hashCode(), concat.substring(i, l - i).contentHash());
+
+    final StringBuilder sb = new StringBuilder(str);
+    final StringWrapper mutable = Concat.of(sb, UpperCase.of(sb));
+    sb.reverse();
+    assertEquals(mutable.toString().hashCode(), mutable.contentHash());
+    sb.reverse();
+    assertEquals(mutable.toString().hashCode(), mutable.contentHash());
+  }
+
+}
@@ -0,0 +1,49 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ContentKeyTest extends AbstractStringWrapperTest {
+
+  public ContentKeyTest(final String input) {
+    super(input);
+  }
+
+  @Test
+  public final void testOf() {
+    final String str = this.input;
+    final int l = Math.min(str.length(), 200);
+    final Map<String, Integer> map = new HashMap<>();
+    for (int i = 0; i < l; i++)
+      map.put(str.substring(i, l), i);
+    final Set<ContentKey> set = new HashSet<>();
+    final ContentKey probe = ContentKey.probe();
+    for (int i = 0; i < l; i++) {
+      final StringWrapper sub = Substring.of(Concat.of(new CharSequence[] { str, str }), i, l);
+      assertEquals(str.substring(i, l).hashCode(), ContentKey.of(sub).hashCode());
+      assertEquals(map.get(str.substring(i, l)), map.get(probe.set(sub)));
+      assertTrue(set.add(ContentKey.of(sub)));
+      assertTrue(set.contains(probe.set(str.substring(i, l))));
+    }
+    assertNull(map.get(probe.set(str + "?")));
+    try {
+      ContentKey.of(str).set(str);
+      fail("immutable key");
+    } catch (final UnsupportedOperationException e) {
+      // expected
+    }
+    // Keys only equal other keys:
+    final ContentKey key = ContentKey.of(str);
+    assertFalse(key.equals(str));
+    assertFalse(str.equals(key));
+    assertEquals(key, ContentKey.of(NullWrapper.of(str)));
+    assertEquals(ContentKey.of(NullWrapper.of(str)), key);
+  }
+
+}
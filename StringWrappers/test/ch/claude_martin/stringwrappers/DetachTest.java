@@ -0,0 +1,100 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class DetachTest extends AbstractStringWrapperTest {
+
+  public DetachTest(final String input) {
+    super(input);
+  }
+
+  @Test
+  public final void testArrays() {
+    final String str = this.input;
+    final int l = str.length();
+    final char[] big = new char[10_000];
+    str.getChars(0, Math.min(l, big.length), big, 0);
+    final StringWrapper array = CharArrayWrapper.of(big);
+    final StringWrapper view = Substring.of(array, 0, Math.min(l, 40));
+    assertEquals(l == 0 ? 0 : big.length, view.retainedChars());
+    assertEquals(l == 0 ? 0 : 2 * big.length, view.retainedBytes());
+    final StringWrapper compact = view.compact();
+    this.assertEqualStrings(view, compact);
+    assertEquals(view.length(), compact.retainedChars());
+    assertSame(compact, compact.compact());
+    this.assertEqualStrings(str, NullWrapper.of(str).detach());
+    assertEquals(StringUtils.isLatin1(str) ? l : 2 * l, NullWrapper.of(str).detach().retainedBytes());
+    assertEquals(0, EndlessString.repeat("abc").retainedChars());
+  }
+
+  @Test
+  public final void testConcat() {
+    final String str = this.input;
+    final int l = str.length();
+    final StringWrapper chars = CharArrayWrapper.of(new char[100]);
+    final StringWrapper view = Substring.of(chars, 0, 10);
+    final StringWrapper concat = Concat.of(new CharSequence[] { str, view, "xyz" });
+    assertEquals(l + 100 + 3, concat.retainedChars());
+    assertEquals(2 * (l + 100 + 3), concat.retainedBytes());
+    final byte[] latin1 = ASCII.toASCII(str + "abc", (byte) '?', true);
+    final StringWrapper bytes = Concat.of(ByteArrayWrapper.of(latin1), chars);
+    assertEquals(latin1.length + 100, bytes.retainedChars());
+    assertEquals(latin1.length + 200, bytes.retainedBytes());
+    final StringWrapper detached = concat.detach();
+    this.assertEqualStrings(concat, detached);
+    assertEquals(concat.length(), detached.retainedChars());
+    this.assertEqualStrings(concat, concat.compact());
+    assertEquals(concat.length(), concat.compact().retainedChars());
+  }
+
+  @Test
+  public final void testFileWrapper() throws IOException {
+    final String str = this.input;
+    final int l = str.length();
+    final Path file = Files.createTempFile("DetachTest", ".txt");
+    file.toFile().deleteOnExit();
+    Files.write(file, str.getBytes(StandardCharsets.UTF_16BE));
+    final StringWrapper wrapper = FileWrapper.of(file, 2);
+    if (l == 0) {
+      assertEquals(0, wrapper.retainedChars());
+      return;
+    }
+    assertEquals(str, wrapper.toString());
+    // Only the cached pages are retained:
+    final int pageChars = FileWrapper.PAGE_SIZE / 2;
+    final int pages = Math.min(2, (l + pageChars - 1) / pageChars);
+    assertEquals((long) pages * pageChars, wrapper.retainedChars());
+    assertEquals(2L * pages * pageChars, wrapper.retainedBytes());
+    final StringWrapper detached = wrapper.detach();
+    this.assertEqualStrings(str, detached);
+    assertEquals(l, detached.retainedChars());
+  }
+
+  @Test
+  public final void testUtf8() {
+    final String str = this.input;
+    final int l = str.length();
+    final byte[] utf8 = str.getBytes(StandardCharsets.UTF_8);
+    final StringWrapper wrapper = Utf8ByteArrayWrapper.of(utf8);
+    if (l == 0) {
+      assertEquals(0, wrapper.retainedChars());
+      return;
+    }
+    // The bytes and the index, which has one int for every STRIDE chars:
+    final int offsets = (l + Utf8.STRIDE - 1) / Utf8.STRIDE;
+    assertEquals(utf8.length + 2L * offsets, wrapper.retainedChars());
+    assertEquals(utf8.length + 4L * offsets, wrapper.retainedBytes());
+    final StringWrapper compact = wrapper.compact();
+    this.assertEqualStrings(str, compact);
+    assertEquals(l, compact.retainedChars());
+    assertEquals(StringUtils.isLatin1(str) ? l : 2 * l, compact.retainedBytes());
+  }
+
+}
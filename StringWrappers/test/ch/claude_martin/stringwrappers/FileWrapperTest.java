@@ -0,0 +1,179 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class FileWrapperTest extends AbstractStringWrapperTest {
+
+  public FileWrapperTest(final String input) {
+    super(input);
+  }
+
+  private Path createFile() throws IOException {
+    return this.createFile(this.input.getBytes(StandardCharsets.UTF_16BE));
+  }
+
+  private Path createFile(final byte[] bytes) throws IOException {
+    final Path file = Files.createTempFile("FileWrapperTest", ".txt");
+    file.toFile().deleteOnExit();
+    Files.write(file, bytes);
+    return file;
+  }
+
+  @Test
+  public final void testOf() throws IOException {
+    final Path file = this.createFile();
+    final StringWrapper wrapper = FileWrapper.of(file);
+    assertEquals(this.input.length(), wrapper.length());
+    this.assertEqualStrings(this.input, wrapper);
+    if (this.input.isEmpty())
+      assertSame(EmptyWrapper.INSTANCE, wrapper);
+  }
+
+  @Test
+  public final void testMapped() throws IOException {
+    final Path file = this.createFile();
+    final StringWrapper mapped = FileWrapper.of(file, true);
+    assertEquals(this.input.length(), mapped.length());
+    this.assertEqualStrings(this.input, mapped);
+    assertEquals(this.input, mapped.toString());
+    for (final char c : new char[] { 'x', ' ', '\0', '\uFFFD' })
+      assertEquals(this.input.indexOf(c), mapped.indexOf(c));
+  }
+
+  @Test
+  public final void testCharset() throws IOException {
+    for (final Charset cs : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1,
+        StandardCharsets.US_ASCII, StandardCharsets.UTF_16, StandardCharsets.UTF_16LE, Charset.forName("UTF-32") }) {
+      final byte[] bytes = this.input.getBytes(cs);
+      final String expected = new String(bytes, cs);
+      final Path file = this.createFile(bytes);
+      for (final int interval : new int[] { 2, 7, CharsetFileWrapper.DEFAULT_INTERVAL }) {
+        final StringWrapper wrapper = CharsetFileWrapper.of(file, cs, interval);
+        assertEquals(cs.name(), expected.length(), wrapper.length());
+        this.assertEqualStrings(expected, wrapper);
+        // random access, backwards:
+        for (int i = expected.length() - 1; i >= 0; i -= 1 + i / 3)
+          assertEquals(expected.charAt(i), wrapper.charAt(i));
+        assertEquals(expected, wrapper.toString());
+        assertEquals(expected.indexOf('x'), wrapper.indexOf('x'));
+      }
+    }
+  }
+
+  @Test
+  public final void testUtf32ByteOrder() throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    while (sb.length() <= 3000)
+      sb.append(this.input).append("k\uFEFF\uD83D\uDE00");
+    final String expected = sb.toString();
+    final byte[] text = expected.getBytes(Charset.forName("UTF-32LE"));
+    final byte[] bytes = new byte[4 + text.length];
+    bytes[0] = (byte) 0xFF;
+    bytes[1] = (byte) 0xFE;
+    System.arraycopy(text, 0, bytes, 4, text.length);
+    final Path file = this.createFile(bytes);
+    for (final int interval : new int[] { 2, 7, CharsetFileWrapper.DEFAULT_INTERVAL }) {
+      final StringWrapper wrapper = CharsetFileWrapper.of(file, Charset.forName("UTF-32"), interval);
+      assertEquals(expected.length(), wrapper.length());
+      assertEquals(expected.charAt(3000), wrapper.charAt(3000));
+      this.assertEqualStrings(expected, wrapper);
+      assertEquals(expected, wrapper.toString());
+    }
+    try {
+      CharsetFileWrapper.of(file, Charset.forName("ISO-2022-JP"));
+      fail("stateful charset");
+    } catch (final IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public final void testCache() throws IOException {
+    final Path file = this.createFile();
+    final StringWrapper wrapper = FileWrapper.of(file, 2);
+    this.assertEqualStrings(this.input, wrapper);
+    assertEquals(this.input, wrapper.toString());
+    if (this.input.isEmpty())
+      return;
+    final PageCache cache = ((FileWrapper) wrapper).getCache();
+    final int pages = (2 * this.input.length() + FileWrapper.PAGE_SIZE - 1) / FileWrapper.PAGE_SIZE;
+    assertEquals(2, cache.getCapacity());
+    assertEquals(Math.min(2, pages), cache.size());
+    assertEquals(this.input.length() + pages, cache.getHits() + cache.getMisses());
+    assertEquals(pages > 2 ? 2 * pages : pages, cache.getMisses());
+    assertEquals(cache.getMisses() - cache.size(), cache.getEvictions());
+  }
+
+  @Test
+  public final void testInterrupt() throws IOException {
+    if (this.input.isEmpty())
+      return;
+    final StringBuilder sb = new StringBuilder();
+    while (sb.length() < 3 * FileWrapper.PAGE_SIZE / 2)
+      sb.append(this.input);
+    final String expected = sb.toString();
+    final Path file = this.createFile(expected.getBytes(StandardCharsets.UTF_16BE));
+    try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+      for (final StringWrapper wrapper : new StringWrapper[] { FileWrapper.of(file, 1), FileWrapper.of(raf, 1) }) {
+        for (int i = 0; i < expected.length(); i += FileWrapper.PAGE_SIZE / 2) {
+          // Each char is on a new page, so it is read while the thread is interrupted.
+          Thread.currentThread().interrupt();
+          try {
+            assertEquals(expected.charAt(i), wrapper.charAt(i));
+          } finally {
+            assertTrue(Thread.interrupted());
+          }
+        }
+        assertEquals(expected, wrapper.toString());
+      }
+    }
+  }
+
+  @Test
+  public final void testConcurrentReads() throws Exception {
+    final Path file = this.createFile();
+    // Small cache, so that pages are evicted and read again all the time:
+    final StringWrapper wrapper = FileWrapper.of(file, 2);
+    final StringWrapper mapped = FileWrapper.mapped(file);
+    final int threads = 8;
+    final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Callable<Void>> tasks = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final long seed = t;
+        tasks.add(() -> {
+          final Random rng = new Random(seed);
+          final int length = this.input.length();
+          for (int i = 0; i < 20_000 && length > 0; i++) {
+            final int index = rng.nextInt(length);
+            assertEquals(this.input.charAt(index), wrapper.charAt(index));
+            assertEquals(this.input.charAt(index), mapped.charAt(index));
+          }
+          assertEquals(this.input, wrapper.toString());
+          return null;
+        });
+      }
+      for (final Future<Void> f : pool.invokeAll(tasks))
+        f.get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+}
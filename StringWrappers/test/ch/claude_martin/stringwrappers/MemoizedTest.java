@@ -0,0 +1,81 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class MemoizedTest extends AbstractStringWrapperTest {
+
+  public MemoizedTest(final String input) {
+    super(input);
+  }
+
+  @Test
+  public final void testFlatten() {
+    final String str = this.input;
+    final int l = str.length();
+    final StringWrapper chain = Rot13.of(Substring.of(Concat.of(new CharSequence[] { "<", str, ">" }), 1, l + 1));
+    final String expected = chain.toString();
+    final FlattenPolicy policy = FlattenPolicy.of(3);
+    final StringWrapper memo = chain.memoize(policy);
+    if (l == 0) {
+      assertSame(EmptyWrapper.INSTANCE, memo);
+      return;
+    }
+    assertTrue(memo instanceof Memoized);
+    assertSame(memo, memo.memoize(policy));
+    for (int i = 0; i < 3; i++)
+      assertEquals(expected.charAt(i % l), memo.charAt(i % l));
+    assertFalse(((Memoized) memo).isFlat());
+    assertEquals(3, policy.getAccesses());
+    assertEquals(expected, memo.toString());
+    assertTrue(((Memoized) memo).isFlat());
+    assertEquals(1, policy.getFlattens());
+    assertEquals(l, policy.getFlatChars());
+    this.assertEqualStrings(expected, memo);
+    this.assertGetChars(memo);
+    for (final char c : new char[] { 'x', 'n', 'ä', '•' })
+      assertEquals(expected.indexOf(c, 1), memo.indexOf(c, 1));
+    assertEquals(expected, memo.toString());
+    assertEquals(3, policy.getAccesses());
+    assertTrue(policy.getHits() > l);
+    assertEquals(expected.hashCode(), memo.contentHash());
+  }
+
+  @Test
+  public final void testConcurrentFlatten() throws Exception {
+    final String str = this.input;
+    if (str.isEmpty())
+      return;
+    final FlattenPolicy policy = FlattenPolicy.of(0);
+    final StringWrapper memo = Memoized.of(Rot13.of(Concat.of(new CharSequence[] { str, str })), policy);
+    final String expected = Rot13.of(str + str).toString();
+    final int threads = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      final List<Future<String>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++)
+        results.add(pool.submit(() -> {
+          start.await();
+          return memo.toString();
+        }));
+      start.countDown();
+      for (final Future<String> f : results)
+        assertEquals(expected, f.get());
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(1, policy.getFlattens());
+    assertEquals(expected.length(), policy.getFlatChars());
+    assertEquals(threads - 1, policy.getHits());
+  }
+
+}
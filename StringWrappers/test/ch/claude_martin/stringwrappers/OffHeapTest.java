@@ -0,0 +1,84 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class OffHeapTest extends AbstractStringWrapperTest {
+
+  public OffHeapTest(final String input) {
+    super(input);
+  }
+
+  private void check(final String expected, final StringWrapper w) {
+    this.assertEqualStrings(expected, w);
+    this.assertGetChars(w);
+    for (final char c : new char[] { 'x', 'n', 'ä', '•', '\uD83D' })
+      assertEquals(expected.indexOf(c, 1), w.indexOf(c, 1));
+    final StringBuilder sb = new StringBuilder();
+    w.iterator().forEachRemaining((Character c) -> sb.append(c.charValue()));
+    assertEquals(expected, sb.toString());
+  }
+
+  @Test
+  public final void testLayouts() {
+    final String str = this.input;
+    // The pair of surrogates and the unpaired one make sure UTF-8 gets tested
+    // with chars that do not fit into the BMP.
+    final String wide = str + "😀" + str;
+    final String utf8 = wide + "\uD800";
+    final StringWrapper latin1, utf16, decoded, wrapped;
+    try (OffHeapArena arena = OffHeapArena.open()) {
+      utf16 = arena.utf16(wide);
+      decoded = arena.utf8(utf8);
+      this.check(wide, utf16);
+      this.check(wide + "?", decoded);
+      assertEquals(utf8.getBytes(StandardCharsets.UTF_8).length, ((OffHeapWrapper) decoded).byteSize());
+      if (StringUtils.isLatin1(str)) {
+        latin1 = arena.copy(str);
+        this.check(str, latin1);
+        if (str.isEmpty())
+          assertSame(EmptyWrapper.INSTANCE, latin1);
+      } else {
+        latin1 = null;
+        try {
+          arena.latin1(str);
+          fail("not Latin-1");
+        } catch (final IllegalArgumentException e) {
+          // expected
+        }
+      }
+      final byte[] bytes = wide.getBytes(StandardCharsets.UTF_8);
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 1);
+      buffer.put((byte) 'x').put(bytes).position(1);
+      wrapped = arena.wrap(buffer, OffHeapWrapper.Layout.UTF8);
+      this.check(wide, wrapped);
+      assertTrue(arena.byteSize() >= 3L * wide.length());
+    }
+    for (final StringWrapper w : new StringWrapper[] { latin1, utf16, decoded, wrapped }) {
+      if (!(w instanceof OffHeapWrapper))
+        continue;
+      assertFalse(((OffHeapWrapper) w).isOpen());
+      try {
+        w.charAt(0);
+        fail("closed");
+      } catch (final IllegalStateException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public final void testMalformed() {
+    final byte[] bytes = { 'a', (byte) 0xC3, 'b', (byte) 0xED, (byte) 0xA0, (byte) 0x80, (byte) 0xF0, (byte) 0x9F };
+    try (OffHeapArena arena = OffHeapArena.open()) {
+      final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+      buffer.put(bytes).flip();
+      this.check("a\uFFFDb\uFFFD\uFFFD\uFFFD\uFFFD\uFFFD", arena.wrap(buffer, OffHeapWrapper.Layout.UTF8));
+    }
+  }
+
+}
@@ -0,0 +1,42 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ParallelSearchTest {
+
+  /** Texts larger than the threshold are built from these. */
+  private static final String[] INPUTS = { "", "x", "ABCDEFGHIJKLMNOPQRSTUVWXYZ", " \t \n \f \r \b \" \' \\ ", "\uD834\uDD1E",
+      "x\0x" };
+
+  @Test
+  public void testSearch() {
+    for (final String input : INPUTS)
+      this.check(input);
+  }
+
+  private void check(final String input) {
+    final String str = input + "abcab";
+    StringWrapper large = NullWrapper.of(str);
+    while (large.length() < ParallelSearch.THRESHOLD * 2)
+      large = Concat.of(new CharSequence[] { large, "ab", large });
+    final String expected = large.toString();
+    final int l = str.length();
+    for (final String pattern : new String[] { "abcab", "x", "", str.substring(0, Math.min(l, 70)),
+        str.substring(l - Math.min(l, 12)) + "ab" + str.substring(0, Math.min(l, 12)) }) {
+      final int[] all = ParallelSearch.findAll(large, pattern);
+      int count = 0;
+      for (int i = expected.indexOf(pattern); i >= 0; i = expected.indexOf(pattern, i + 1)) {
+        assertEquals(i, all[count++]);
+        if (i == expected.length())
+          break;
+      }
+      assertEquals(count, all.length);
+      assertEquals(count, ParallelSearch.count(large, pattern));
+      assertEquals(expected.indexOf(pattern), ParallelSearch.indexOf(large, pattern));
+      assertEquals(str.indexOf(pattern), ParallelSearch.indexOf(str, pattern));
+    }
+  }
+
+}
@@ -38,6 +38,7 @@ public class ReversedTest extends AbstractStringWrapperTest {
       assertSame(rev.reversed(), rev);
     }
     this.assertEqualStrings(str, rev.reversed());
+    this.assertGetChars(rev);
 
     // test bad surrogate:
     if (rev.length() == 2 && Character.isHighSurrogate(str.charAt(0))) {
@@ -0,0 +1,49 @@
+package ch.claude_martin.stringwrappers;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class SplitterTest extends AbstractStringWrapperTest {
+
+  public SplitterTest(final String input) {
+    super(input);
+  }
+
+  @Test
+  public final void testSplit() {
+    final String str = this.input;
+    final StringWrapper wrapper = Concat.of(new CharSequence[] { "a, b", str, ",c,, " });
+    final String expected = wrapper.toString();
+    for (final String regex : new String[] { ",", ", ", "\\.", "\\s*,\\s*", "", "[aeiou]", "x*" }) {
+      final List<String> pieces = asList(Pattern.compile(regex).split(expected, -1));
+      final List<StringWrapper> split = wrapper.split(regex);
+      assertEquals(regex, pieces.size(), split.size());
+      for (int i = 0; i < pieces.size(); i++)
+        this.assertEqualStrings(pieces.get(i), split.get(i));
+      assertEquals(pieces, wrapper.splitStream(regex).map(Object::toString).collect(Collectors.toList()));
+      assertEquals(expected.matches(regex), wrapper.matches(regex));
+    }
+    assertEquals(asList(expected.split(",", -1)),
+        wrapper.splitStream(',').map(Object::toString).collect(Collectors.toList()));
+    assertTrue(wrapper.splitIterator(',').next() instanceof Substring);
+  }
+
+  @Test
+  public final void testPatternCache() {
+    final String regex = "[,;]" + this.input.length();
+    final Pattern pattern = PatternCache.get(regex);
+    assertSame(pattern, PatternCache.get(regex));
+    assertEquals(regex, pattern.pattern());
+    assertEquals(",", PatternCache.literal(","));
+    assertEquals(".", PatternCache.literal("\\."));
+    assertNull(PatternCache.literal("\\s"));
+    assertNull(PatternCache.literal("a*"));
+  }
+
+}
@@ -0,0 +1,93 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class StringSearchTest extends AbstractStringWrapperTest {
+
+  public StringSearchTest(final String input) {
+    super(input);
+  }
+
+  /** Repeats the unit until the result has the given length. */
+  private static String repeat(final String unit, final int length) {
+    final StringBuilder sb = new StringBuilder(length + unit.length());
+    while (sb.length() < length)
+      sb.append(unit);
+    sb.setLength(length);
+    return sb.toString();
+  }
+
+  @Test
+  public final void testIndexOfSequence() {
+    final String str = this.input;
+    final String all = str + "ab" + str + "aaaaaaaaaab" + str;
+    final StringWrapper concat = Concat.of(new CharSequence[] { str, "ab", Reversed.of(Reversed.of(str)),
+        CharArrayWrapper.of("aaaaaaaaaab".toCharArray()), NullWrapper.of(new StringBuilder(str)) });
+    final int l = all.length();
+    final String periodic = "ab" + str;
+    for (final int m : new int[] { 1, 2, 5, 9, 20, 63, 64, 100, 1000 }) {
+      for (int i = 0; i + m <= l; i += Math.max(1, l / 7)) {
+        final String pattern = all.substring(i, i + m);
+        assertEquals(all.indexOf(pattern), concat.indexOf(pattern));
+        assertEquals(all.indexOf(pattern, i + 1), concat.indexOf(pattern, i + 1));
+        assertEquals(all.lastIndexOf(pattern), concat.lastIndexOf(pattern));
+        assertEquals(all.lastIndexOf(pattern, i + m), concat.lastIndexOf(pattern, i + m));
+        assertTrue(concat.contains(Reversed.of(Reversed.of(pattern))));
+      }
+      final String p = periodic.substring(0, Math.min(m, periodic.length()));
+      assertEquals(all.indexOf(p, 1), concat.indexOf(p, 1));
+      assertEquals(all.lastIndexOf(p, l - 2), concat.lastIndexOf(p, l - 2));
+    }
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 200; i++)
+      sb.append('a');
+    final String a200 = sb.toString();
+    final StringWrapper text = CharArrayWrapper.of((a200 + "b" + a200 + a200 + "b").toCharArray());
+    for (final String p : new String[] { a200 + "b", "a" + a200, a200.substring(0, 70) + "b", "b" + a200 + "b" }) {
+      assertEquals(text.toString().indexOf(p), text.indexOf(p));
+      assertEquals(text.toString().lastIndexOf(p), text.lastIndexOf(p));
+    }
+    assertEquals(0, concat.indexOf(""));
+    assertEquals(l, concat.lastIndexOf(""));
+    assertEquals(-1, concat.indexOf(all + "x"));
+  }
+
+  /**
+   * Patterns at the lengths where the algorithm changes (naive, Horspool,
+   * Two-Way), including periodic patterns and near misses.
+   */
+  @Test
+  public final void testThresholds() {
+    final String str = this.input.substring(0, Math.min(this.input.length(), 1000));
+    final int[] lengths = { StringSearch.NAIVE_MAX, StringSearch.NAIVE_MAX + 1, StringSearch.TWO_WAY_MIN - 1,
+        StringSearch.TWO_WAY_MIN };
+    final String[] units = { "a", "ab", "aab", "abcab" };
+    for (final int m : lengths) {
+      final StringBuilder sb = new StringBuilder(str);
+      sb.append(repeat("a", 2 * m)).append('b').append(repeat("a", 2 * m)).append('#');
+      for (final String unit : units)
+        sb.append(repeat(unit, 3 * m)).append('#').append(repeat(unit, m - 1)).append('#');
+      sb.append(str);
+      final String expected = sb.toString();
+      final int l = expected.length();
+      final StringWrapper text = CharArrayWrapper.of(expected.toCharArray());
+      final StringWrapper concat = Concat.of(Substring.of(text, 0, l / 2), Substring.of(text, l / 2, l));
+      for (final String unit : units) {
+        final String periodic = repeat(unit, m);
+        for (final String p : new String[] { periodic, periodic.substring(1) + '#', '#' + periodic.substring(1),
+            repeat("a", m - 1) + 'b', 'b' + repeat("a", m - 1) }) {
+          assertEquals(m, p.length());
+          for (final StringWrapper t : new StringWrapper[] { text, concat }) {
+            for (final int from : new int[] { 0, 1, m, l / 2, l - m })
+              assertEquals(expected.indexOf(p, from), t.indexOf(p, from));
+            for (final int from : new int[] { l, l - 1, l / 2, m })
+              assertEquals(expected.lastIndexOf(p, from), t.lastIndexOf(p, from));
+          }
+        }
+      }
+    }
+  }
+
+}
@@ -122,4 +122,61 @@ public class SubstringTest extends AbstractStringWrapperTest {
 
   }
 
+  @Test
+  public final void testPushdown() {
+    final String str = this.input;
+    final int l = str.length();
+    final int step = Math.max(1, l / 20);
+    final String all = str + "|" + str;
+    final StringWrapper concat = Concat.of(new CharSequence[] { Substring.of(str, 0, l / 2), Substring.of(str, l / 2),
+        "|", str });
+    final StringWrapper reversed = Reversed.of(str);
+    final String rts = new StringBuilder(str).reverse().toString();
+    final StringWrapper upper = UpperCase.of(str);
+
+    for (int i = 0; i <= l; i += step) {
+      for (int j = i; j <= l; j += step) {
+        final StringWrapper sub = Substring.of(concat, i, j + l / 2);
+        this.assertEqualStrings(all.substring(i, j + l / 2), sub);
+        if (sub instanceof Substring)
+          assertFalse(((Substring) sub).getSource() instanceof Concat);
+
+        final StringWrapper rev = Substring.of(reversed, i, j);
+        this.assertEqualStrings(rts.substring(i, j), rev);
+
+        final StringWrapper up = Substring.of(upper, i, j);
+        this.assertEqualStrings(UpperCase.of(str.substring(i, j)), up);
+        if (j - i > 0)
+          assertTrue(up instanceof UpperCase);
+
+        final StringWrapper subsub = Substring.of(Substring.of(str, i, l), 0, j - i);
+        this.assertEqualStrings(str.substring(i, j), subsub);
+        if (subsub instanceof Substring)
+          assertSame(str, ((Substring) subsub).getSource());
+      }
+    }
+  }
+
+  @Test
+  public final void testDetachRatio() {
+    final String str = this.input;
+    final int l = str.length();
+    final char[] big = new char[10_000];
+    str.getChars(0, Math.min(l, big.length), big, 0);
+    final String text = new String(big);
+    final StringWrapper view = Substring.of(text, 0, Math.min(l, 40));
+    assertEquals(l == 0 ? 0 : big.length, view.retainedChars());
+    final StringWrapper copy = Substring.of(text, 0, Math.min(l, 40), 0.5);
+    this.assertEqualStrings(view, copy);
+    assertEquals(copy.length(), copy.retainedChars());
+    assertTrue(Substring.of(text, 10, big.length, 0.5) instanceof Substring);
+    if (l > 1) {
+      // A mutable source is never copied.
+      final StringBuilder sb = new StringBuilder(text);
+      final StringWrapper live = Substring.of(sb, 0, 1, 1.0);
+      sb.setCharAt(0, str.charAt(0) == 'x' ? 'y' : 'x');
+      assertEquals(sb.charAt(0), live.charAt(0));
+    }
+  }
+
 }
@@ -0,0 +1,93 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SuffixArrayTest extends AbstractStringWrapperTest {
+
+  public SuffixArrayTest(final String input) {
+    super(input);
+  }
+
+  private StringWrapper text() {
+    final String str = this.input.substring(0, Math.min(this.input.length(), 20000));
+    return Concat.of(new CharSequence[] { str, "|", Reversed.of(str), "|", str });
+  }
+
+  private static int[] positions(final String text, final String pattern) {
+    final List<Integer> list = new ArrayList<>();
+    for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1))
+      list.add(i);
+    final int[] result = new int[list.size()];
+    for (int i = 0; i < result.length; i++)
+      result[i] = list.get(i);
+    return result;
+  }
+
+  @Test
+  public final void testOf() {
+    final StringWrapper text = this.text();
+    final SuffixArray index = SuffixArray.of(text);
+    final String str = text.toString();
+    final int n = str.length();
+    assertEquals(n, index.size());
+    final int step = Math.max(1, n / 97);
+    for (int r = 1; r < n; r += step) {
+      final String a = str.substring(index.get(r - 1));
+      final String b = str.substring(index.get(r));
+      assertTrue(a.compareTo(b) < 0);
+      int lcp = 0;
+      while (lcp < b.length() && lcp < a.length() && a.charAt(lcp) == b.charAt(lcp))
+        lcp++;
+      assertEquals(lcp, index.lcp(r));
+    }
+
+    for (int i = 0; i < n; i += step * 6) {
+      for (final int m : new int[] { 1, 2, 7, 100 }) {
+        if (i + m > n)
+          continue;
+        final String pattern = str.substring(i, i + m);
+        assertArrayEquals(positions(str, pattern), index.positions(pattern));
+        assertEquals(positions(str, pattern).length, index.count(pattern));
+        assertTrue(index.contains(pattern));
+      }
+    }
+    assertEquals(0, index.count(str + "x"));
+    assertFalse(index.contains(str + "x"));
+    final StringWrapper repeat = index.longestRepeat();
+    if (!repeat.isEmpty())
+      assertTrue(index.count(repeat) >= 2);
+  }
+
+  @Test
+  public final void testSave() throws IOException {
+    final StringWrapper text = this.text();
+    final Path file = Files.createTempFile("SuffixArrayTest", ".txt");
+    file.toFile().deleteOnExit();
+    final Path indexFile = SuffixArray.indexFile(file);
+    indexFile.toFile().deleteOnExit();
+    assertEquals(file.getFileName() + ".sa", indexFile.getFileName().toString());
+
+    final SuffixArray built = SuffixArray.loadOrBuild(indexFile, text);
+    assertTrue(Files.isRegularFile(indexFile));
+    final SuffixArray loaded = SuffixArray.load(indexFile, text);
+    for (int r = 0; r < text.length(); r++) {
+      assertEquals(built.get(r), loaded.get(r));
+      assertEquals(built.lcp(r), loaded.lcp(r));
+    }
+    try {
+      SuffixArray.load(indexFile, Concat.of(text, "x"));
+      fail("index of other text");
+    } catch (final IOException e) {
+      // expected
+    }
+    Files.delete(indexFile);
+  }
+}
@@ -0,0 +1,55 @@
+package ch.claude_martin.stringwrappers;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class Utf8ByteArrayWrapperTest extends AbstractStringWrapperTest {
+
+  public Utf8ByteArrayWrapperTest(final String input) {
+    super(input);
+  }
+
+  private void check(final String expected, final StringWrapper w) {
+    assertEquals(expected.length(), w.length());
+    this.assertEqualStrings(expected, w);
+    this.assertGetChars(w);
+    for (final char c : new char[] { 'x', 'n', 'ä', '•', '\uDE00' })
+      assertEquals(expected.indexOf(c, 1), w.indexOf(c, 1));
+    final StringBuilder sb = new StringBuilder();
+    w.iterator().forEachRemaining((Character c) -> sb.append(c.charValue()));
+    assertEquals(expected, sb.toString());
+    assertEquals(expected, w.toString());
+  }
+
+  @Test
+  public final void testUtf8() {
+    final String str = this.input;
+    final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    final StringWrapper w = Utf8ByteArrayWrapper.of(bytes);
+    if (str.isEmpty()) {
+      assertSame(EmptyWrapper.INSTANCE, w);
+      return;
+    }
+    this.check(str, w);
+    final boolean ascii = str.chars().allMatch(c -> c < 0x80);
+    assertEquals(ascii, ((Utf8ByteArrayWrapper) w).isAscii());
+
+    // A long text with surrogate pairs on both sides of the index entries:
+    final StringBuilder sb = new StringBuilder();
+    while (sb.length() < 300)
+      sb.append(str).append("😀");
+    final String wide = sb.toString();
+    final byte[] framed = ("<" + wide + ">").getBytes(StandardCharsets.UTF_8);
+    this.check(wide, Utf8ByteArrayWrapper.of(framed, 1, framed.length - 2));
+  }
+
+  @Test
+  public final void testMalformed() {
+    final byte[] bytes = { 'a', (byte) 0xC3, 'b', (byte) 0xED, (byte) 0xA0, (byte) 0x80, (byte) 0xF0, (byte) 0x9F };
+    this.check("a�b�����", Utf8ByteArrayWrapper.of(bytes));
+  }
+
+}